@@ -0,0 +1,81 @@
+package nl.surepay.validator.benchmark;
+
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.processor.CsvFileProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+@State(Scope.Benchmark)
+public class CsvFileProcessorBenchmark {
+    @Param({"10000", "1000000"})
+    int rows;
+
+    @Param
+    Profile profile;
+
+    byte[] content;
+    Path file;
+    ForkJoinPool parsePool;
+    CsvFileProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        content = Statements.csv(rows, profile);
+        file = Files.createTempFile("statement-", ".csv");
+        Files.write(file, content);
+        parsePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        // Parse every file read from a path in parallel.
+        var properties = new UploadProperties(
+                1000,
+                2,
+                new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                new UploadProperties.Async(1, 1),
+                new UploadProperties.Parallel(DataSize.ofBytes(0), DataSize.ofMegabytes(8), 0),
+                new UploadProperties.Resumable(Path.of("uploads")),
+                new UploadProperties.CrossBatch(1000, 0.01),
+                new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                new UploadProperties.Database(2));
+
+        processor = new CsvFileProcessor(properties, parsePool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parsePool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void readStream(RowCounter counter, Blackhole blackhole) throws IOException {
+        try (var stream = processor.read(new ByteArrayInputStream(content))) {
+            stream.forEach(result -> {
+                blackhole.consume(result);
+                counter.rows++;
+            });
+        }
+    }
+
+    @Benchmark
+    public void readParallel(RowCounter counter, Blackhole blackhole) throws IOException {
+        try (var stream = processor.read(file)) {
+            stream.forEach(result -> {
+                blackhole.consume(result);
+                counter.rows++;
+            });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package nl.surepay.validator.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.writer.CsvFileWriter;
+import nl.surepay.validator.writer.FileWriter;
+import nl.surepay.validator.writer.JsonFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the reports of a statement. A clean statement has no reports, so only the profiles with errors are used. The
+ * rows are counted as reports written.
+ * <p>
+ * {@link #openCsv} and {@link #objectMapper} are the writers that {@link CsvFileWriter} and {@link JsonFileWriter}
+ * replaced: OpenCSV's {@code CSVWriter} on an {@link OutputStreamWriter}, and a Jackson generator that serializes
+ * every report with the {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+public class FileWriterBenchmark {
+    @Param({"10000", "1000000"})
+    int rows;
+
+    @Param({"INVALID_10", "DUPLICATES_50"})
+    Profile profile;
+
+    @Param({"65536"})
+    int flushThreshold;
+
+    List<Report> reports;
+    ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        reports = Statements.reports(rows, profile);
+        objectMapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public void csv(RowCounter counter) throws IOException {
+        write(new CsvFileWriter(OutputStream.nullOutputStream(), flushThreshold), counter);
+    }
+
+    @Benchmark
+    public void json(RowCounter counter) throws IOException {
+        write(new JsonFileWriter(OutputStream.nullOutputStream(), flushThreshold), counter);
+    }
+
+    @Benchmark
+    public void openCsv(RowCounter counter) throws IOException {
+        try (var writer = new CSVWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), UTF_8))) {
+            writer.writeNext(new String[]{"Reference", "Description", "Error Message"});
+
+            for (var report : reports) {
+                writer.writeNext(new String[]{
+                        Optional.ofNullable(report.reference()).map(String::valueOf).orElse(""),
+                        report.description(),
+                        report.errorMessage()
+                });
+            }
+        }
+
+        counter.rows += reports.size();
+    }
+
+    @Benchmark
+    public void objectMapper(RowCounter counter) throws IOException {
+        try (var generator = objectMapper.createGenerator(OutputStream.nullOutputStream(), JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+
+            for (var report : reports) {
+                generator.writeObject(report);
+            }
+
+            generator.writeEndArray();
+        }
+
+        counter.rows += reports.size();
+    }
+
+    private void write(FileWriter writer, RowCounter counter) throws IOException {
+        try (writer) {
+            for (var report : reports) {
+                writer.write(report);
+            }
+        }
+
+        counter.rows += reports.size();
+    }
+}
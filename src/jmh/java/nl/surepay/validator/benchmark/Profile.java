@@ -0,0 +1,27 @@
+package nl.surepay.validator.benchmark;
+
+/**
+ * The kind of rows in a generated statement.
+ */
+public enum Profile {
+    /**
+     * Every row is valid and has a unique reference.
+     */
+    CLEAN,
+    /**
+     * Every 10th row can not be parsed or has an ending balance that does not match.
+     */
+    INVALID_10,
+    /**
+     * Every other row repeats the reference of the row before it.
+     */
+    DUPLICATES_50;
+
+    boolean invalid(int row) {
+        return this == INVALID_10 && row % 10 == 9;
+    }
+
+    boolean duplicate(int row) {
+        return this == DUPLICATES_50 && row % 2 == 1;
+    }
+}
@@ -0,0 +1,98 @@
+package nl.surepay.validator.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.Cents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * {@link RowValue#fromParser} without the stream of the processor around it. The csv side of the parsing is measured
+ * by {@code CsvTokenizerBenchmark}, since the tokenizer is not public.
+ * <p>
+ * {@link #valueAsString} is the decoding that {@code fromParser} replaced: every value read as a {@link String} and
+ * parsed from it. Compare the {@code gc.alloc.rate.norm} of both for the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+public class RowValueBenchmark {
+    @Param({"10000"})
+    int rows;
+
+    @Param
+    Profile profile;
+
+    byte[] content;
+    JsonFactory factory;
+
+    @Setup
+    public void setup() {
+        content = Statements.json(rows, profile);
+        factory = new JsonFactory();
+    }
+
+    @Benchmark
+    public void fromParser(RowCounter counter, Blackhole blackhole) throws IOException {
+        try (var parser = factory.createParser(content)) {
+            // Skip the start of the array.
+            parser.nextToken();
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                try {
+                    blackhole.consume(RowValue.fromParser(parser));
+                } catch (IOException e) {
+                    blackhole.consume(e);
+                }
+
+                counter.rows++;
+            }
+        }
+    }
+
+    @Benchmark
+    public void valueAsString(RowCounter counter, Blackhole blackhole) throws IOException {
+        try (var parser = factory.createParser(content)) {
+            // Skip the start of the array.
+            parser.nextToken();
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long reference = 0;
+                String accountNumber = null;
+                String description = null;
+                long startBalance = 0;
+                long mutation = 0;
+                long endBalance = 0;
+
+                while (parser.nextToken() != JsonToken.END_OBJECT) {
+                    var fieldName = parser.currentName();
+                    parser.nextToken();
+                    var value = parser.getValueAsString();
+                    parser.skipChildren();
+
+                    try {
+                        switch (fieldName) {
+                            case "reference" -> reference = Long.parseLong(value);
+                            case "accountNumber" -> accountNumber = value;
+                            case "description" -> description = value;
+                            case "startBalance" -> startBalance = Cents.parse(value);
+                            case "mutation" -> mutation = Cents.parse(value);
+                            case "endBalance" -> endBalance = Cents.parse(value);
+                        }
+                    } catch (NumberFormatException e) {
+                        blackhole.consume(e);
+                    }
+                }
+
+                blackhole.consume(new RowValue(reference, accountNumber, description, startBalance, mutation,
+                        endBalance));
+                counter.rows++;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package nl.surepay.validator.benchmark;
+
+import nl.surepay.validator.model.Report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates statements of a given size and {@link Profile}. The content only depends on the arguments, so every run
+ * of a benchmark reads the same bytes.
+ */
+public final class Statements {
+    private static final String[] ACCOUNT_NUMBERS = {
+            "NL91RABO0315273637",
+            "NL27SNSB0917829871",
+            "NL69ABNA0433647324",
+            "NL74ABNA0248990274",
+            "NL93ABNA0585619023",
+    };
+    private static final String[] DESCRIPTIONS = {
+            "Book John Smith",
+            "Clothes Irma Steven",
+            "Toy \"Jimmie\" Clarice",
+            "Flowers Julianne Othmar",
+            "Subscription, Jan Theuß",
+    };
+
+    private Statements() {
+    }
+
+    public static byte[] csv(int rows, Profile profile) {
+        var builder = new StringBuilder("Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n");
+        var random = new Random(rows);
+
+        for (var i = 0; i < rows; i++) {
+            var row = row(random, i, profile);
+            // Positive mutations have a plus sign in the csv files, but json does not allow it.
+            var mutation = row.mutation.startsWith("-") ? row.mutation : "+" + row.mutation;
+
+            if (profile.invalid(i)) {
+                switch (i / 10 % 4) {
+                    case 0 -> builder.append("invalid,%s,%s,%s,%s,%s\n".formatted(
+                            row.accountNumber, csvEscape(row.description), row.startBalance, mutation, row.endBalance));
+                    case 1 -> builder.append("%d,%s,%s\n".formatted(row.reference, row.accountNumber, csvEscape(row.description)));
+                    case 2 -> builder.append("%d,%s,%s,%s1,%s,%s\n".formatted(
+                            row.reference, row.accountNumber, csvEscape(row.description), row.startBalance, mutation, row.endBalance));
+                    default -> builder.append("%d,%s,%s,%s,%s,1.00\n".formatted(
+                            row.reference, row.accountNumber, csvEscape(row.description), row.startBalance, mutation));
+                }
+
+                continue;
+            }
+
+            builder.append("%d,%s,%s,%s,%s,%s\n".formatted(
+                    row.reference, row.accountNumber, csvEscape(row.description), row.startBalance, mutation, row.endBalance));
+        }
+
+        return builder.toString().getBytes(UTF_8);
+    }
+
+    public static byte[] json(int rows, Profile profile) {
+        var builder = new StringBuilder("[");
+        var random = new Random(rows);
+
+        for (var i = 0; i < rows; i++) {
+            var row = row(random, i, profile);
+            var reference = String.valueOf(row.reference);
+            var endBalance = row.endBalance;
+
+            if (profile.invalid(i)) {
+                switch (i / 10 % 3) {
+                    case 0 -> reference = "invalid";
+                    case 1 -> endBalance = "\"one\"";
+                    default -> endBalance = "1.00";
+                }
+            }
+
+            builder.append(i == 0 ? "\n" : ",\n");
+            builder.append("""
+                    {"reference":"%s","accountNumber":"%s","description":"%s","startBalance":%s,"mutation":%s,"endBalance":%s}"""
+                    .formatted(reference, row.accountNumber, row.description.replace("\"", "\\\""), row.startBalance,
+                            row.mutation, endBalance));
+        }
+
+        return builder.append("\n]").toString().getBytes(UTF_8);
+    }
+
+    /**
+     * The reports that the rows of a statement would produce.
+     */
+    public static List<Report> reports(int rows, Profile profile) {
+        var reports = new ArrayList<Report>();
+        var random = new Random(rows);
+
+        for (var i = 0; i < rows; i++) {
+            var row = row(random, i, profile);
+
+            if (profile.invalid(i)) {
+                reports.add(new Report(null, null, "Reference is not a valid number at line %d".formatted(i + 1)));
+            } else if (profile.duplicate(i)) {
+                reports.add(new Report(row.reference, row.description, "Duplicate reference"));
+            }
+        }
+
+        return reports;
+    }
+
+    private static Row row(Random random, int i, Profile profile) {
+        // A duplicate repeats the reference of the previous row.
+        var reference = 100_000L + (profile.duplicate(i) ? i - 1 : i);
+        var startBalance = random.nextLong(1_000_000);
+        var mutation = random.nextLong(-50_000, 50_000);
+
+        return new Row(
+                reference,
+                ACCOUNT_NUMBERS[random.nextInt(ACCOUNT_NUMBERS.length)],
+                DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                amount(startBalance),
+                amount(mutation),
+                amount(startBalance + mutation));
+    }
+
+    private static String amount(long cents) {
+        return "%s%d.%02d".formatted(cents < 0 ? "-" : "", Math.abs(cents) / 100, Math.abs(cents) % 100);
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private record Row(
+            long reference,
+            String accountNumber,
+            String description,
+            String startBalance,
+            String mutation,
+            String endBalance
+    ) {
+    }
+}
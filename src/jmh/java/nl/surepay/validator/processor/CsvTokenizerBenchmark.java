@@ -0,0 +1,75 @@
+package nl.surepay.validator.processor;
+
+import com.opencsv.CSVReaderBuilder;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.Cents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares {@link CsvTokenizer} with the OpenCSV path it replaced: {@code CSVReader.readNext()} followed by parsing
+ * the strings of the line. Run it with {@code ./gradlew jmh -PjmhIncludes=CsvTokenizerBenchmark} and add
+ * {@code -prof gc} to the JMH arguments to see the allocation rate per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvTokenizerBenchmark {
+    @Param({"100000"})
+    int rows;
+
+    byte[] content;
+
+    @Setup
+    public void setup() {
+        var builder = new StringBuilder("Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n");
+
+        for (var i = 0; i < rows; i++) {
+            builder.append("%d,NL91RABO0315273637,Book John Smith,21.6,-41.83,-20.23\n".formatted(100000 + i));
+        }
+
+        content = builder.toString().getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) throws Exception {
+        try (var tokenizer = new CsvTokenizer(new ByteArrayInputStream(content))) {
+            // Skip header
+            tokenizer.next();
+
+            while (tokenizer.next()) {
+                blackhole.consume(tokenizer.value());
+            }
+        }
+    }
+
+    @Benchmark
+    public void openCsv(Blackhole blackhole) throws Exception {
+        var reader = new InputStreamReader(new ByteArrayInputStream(content), UTF_8);
+
+        try (var csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
+            for (var line = csvReader.readNext(); line != null; line = csvReader.readNext()) {
+                blackhole.consume(new RowValue(
+                        Long.parseLong(line[0]),
+                        line[1],
+                        line[2],
+                        Cents.parse(line[3]),
+                        Cents.parse(line[4]),
+                        Cents.parse(line[5])));
+            }
+        }
+    }
+}
@@ -2,8 +2,10 @@ package nl.surepay.validator;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class SurepayApplication {
     public static void main(String[] args) {
         SpringApplication.run(SurepayApplication.class, args);
@@ -0,0 +1,34 @@
+package nl.surepay.validator.config;
+
+import nl.surepay.validator.util.BoundedVirtualThreadExecutor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class AsyncConfiguration {
+    /**
+     * Bounded executor for asynchronous uploads. Each upload runs on a virtual thread since it mostly waits for file
+     * and database I/O. Uploads are rejected once all slots are busy and the queue is full instead of piling up
+     * spooled files.
+     */
+    @Bean
+    public TaskExecutor uploadExecutor(UploadProperties uploadProperties) {
+        var async = uploadProperties.async();
+
+        return new BoundedVirtualThreadExecutor("upload-", async.threads(), async.queueCapacity());
+    }
+
+    /**
+     * Pool that parses the chunks of large files in parallel. Parsing is CPU bound, so it gets a thread per processor
+     * unless configured otherwise.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool parsePool(UploadProperties uploadProperties) {
+        var parallelism = uploadProperties.parallel().parallelism();
+
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -1,9 +1,32 @@
 package nl.surepay.validator.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import nl.surepay.validator.util.Throttle;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jdbc.repository.config.EnableJdbcAuditing;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
 @Configuration
 @EnableJdbcAuditing
 public class DatabaseConfiguration {
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    /**
+     * Limits the database work of the uploads to the size of the connection pool, minus the connections that are
+     * reserved for the other requests. With virtual threads there can be far more uploads than connections, and the
+     * extra ones should wait for a permit instead of timing out while waiting for a connection. Without the reserve,
+     * busy uploads would take every connection and a request for the status of a batch would time out as well.
+     */
+    @Bean
+    public Throttle databaseThrottle(DataSource dataSource, UploadProperties uploadProperties) throws SQLException {
+        var poolSize = dataSource.isWrapperFor(HikariDataSource.class)
+                ? dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()
+                : DEFAULT_POOL_SIZE;
+        var permits = poolSize - uploadProperties.database().reservedConnections();
+
+        return new Throttle(Math.max(permits, 1));
+    }
 }
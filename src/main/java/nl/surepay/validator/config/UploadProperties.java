@@ -0,0 +1,91 @@
+package nl.surepay.validator.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Tuning properties of the upload pipeline.
+ *
+ * @param batchSize     number of rows that are collected before the valid ones are inserted in a single round trip.
+ * @param pipelineDepth number of chunks that a stage of the upload pipeline can work ahead of the next stage.
+ * @param copy          properties of the COPY ingest mode.
+ * @param async         properties of the asynchronous uploads.
+ * @param parallel      properties of parsing large files in parallel.
+ * @param resumable     properties of the uploads that are sent in chunks.
+ * @param crossBatch    properties of finding references that are reused by other batches of the same account.
+ * @param report        properties of writing the report of a batch.
+ * @param database      properties of the database work of the uploads.
+ */
+@ConfigurationProperties(prefix = "upload")
+public record UploadProperties(
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("2") int pipelineDepth,
+        @DefaultValue Copy copy,
+        @DefaultValue Async async,
+        @DefaultValue Parallel parallel,
+        @DefaultValue Resumable resumable,
+        @DefaultValue CrossBatch crossBatch,
+        @DefaultValue Report report,
+        @DefaultValue Database database
+) {
+    /**
+     * @param batchSize number of rows that are streamed into the staging table before they are merged.
+     * @param threshold file size from which uploads use the COPY ingest mode when no mode is requested.
+     */
+    public record Copy(@DefaultValue("50000") int batchSize, @DefaultValue("100MB") DataSize threshold) {
+    }
+
+    /**
+     * @param threads       number of uploads that are processed at the same time.
+     * @param queueCapacity number of uploads that can wait for a thread before new uploads are rejected.
+     */
+    public record Async(@DefaultValue("4") int threads, @DefaultValue("16") int queueCapacity) {
+    }
+
+    /**
+     * @param threshold   file size from which the file is split into chunks that are parsed in parallel.
+     * @param chunkSize   minimum size of a chunk. A chunk always ends on a record, so it can be larger.
+     * @param parallelism number of chunks that are parsed at the same time. Zero means one per processor.
+     */
+    public record Parallel(
+            @DefaultValue("64MB") DataSize threshold,
+            @DefaultValue("8MB") DataSize chunkSize,
+            @DefaultValue("0") int parallelism
+    ) {
+    }
+
+    /**
+     * @param directory where the content of resumable uploads is kept until the batch is completed. It has to survive
+     *                  a restart of the application for an upload to be resumed after one.
+     */
+    public record Resumable(@DefaultValue("uploads") Path directory) {
+    }
+
+    /**
+     * @param expectedReferences number of account references the in-memory index is sized for. Beyond that, more
+     *                           references are checked in the database.
+     * @param falsePositiveRate  rate of new references that are checked in the database while the index is within its
+     *                           size.
+     */
+    public record CrossBatch(
+            @DefaultValue("10000000") long expectedReferences,
+            @DefaultValue("0.01") double falsePositiveRate
+    ) {
+    }
+
+    /**
+     * @param flushThreshold number of bytes of the report that are buffered before they are written to the response.
+     */
+    public record Report(@DefaultValue("64KB") DataSize flushThreshold) {
+    }
+
+    /**
+     * @param reservedConnections number of pooled connections that the uploads leave for the other requests, like
+     *                            the status and the progress of a batch.
+     */
+    public record Database(@DefaultValue("2") int reservedConnections) {
+    }
+}
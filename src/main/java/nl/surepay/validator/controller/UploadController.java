@@ -1,22 +1,144 @@
 package nl.surepay.validator.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.model.BatchResponse;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.IngestMode;
+import nl.surepay.validator.model.Progress;
+import nl.surepay.validator.service.ProgressService;
+import nl.surepay.validator.service.ReportService;
+import nl.surepay.validator.service.ResumableUploadService;
 import nl.surepay.validator.service.UploadService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static nl.surepay.validator.processor.CsvFileProcessor.TEXT_CSV_VALUE;
+import static nl.surepay.validator.processor.ParquetFileProcessor.APPLICATION_PARQUET_VALUE;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
 @RestController
 @RequestMapping("/api/v1/uploads")
 @RequiredArgsConstructor
 public class UploadController {
     private final UploadService uploadService;
+    private final ResumableUploadService resumableUploadService;
+    private final ReportService reportService;
+    private final ProgressService progressService;
+
+    @PostMapping(consumes = MULTIPART_FORM_DATA_VALUE)
+    public void upload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "mode", required = false) IngestMode mode,
+            @RequestParam(name = "continuity", required = false) Continuity continuity,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        uploadService.upload(file, mode, continuity, request, response);
+    }
+
+    /**
+     * Upload the file as the request body instead of a multipart file. The body is parsed while it is received, except
+     * for a Parquet file, which is read once it is received.
+     */
+    @PostMapping(consumes = {TEXT_CSV_VALUE, APPLICATION_JSON_VALUE, APPLICATION_PARQUET_VALUE})
+    public void uploadBody(
+            @RequestParam(name = "mode", required = false) IngestMode mode,
+            @RequestParam(name = "continuity", required = false) Continuity continuity,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        uploadService.upload(request, mode, continuity, response);
+    }
+
+    @PostMapping(params = "async=true", consumes = MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(ACCEPTED)
+    public BatchResponse uploadAsync(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(name = "mode", required = false) IngestMode mode,
+            @RequestParam(name = "continuity", required = false) Continuity continuity) {
+        var batch = uploadService.uploadAsync(file, mode, continuity);
+
+        return BatchResponse.from(batch);
+    }
+
+    /**
+     * Start a resumable upload. The content is sent in chunks to {@code PUT /api/v1/uploads/{id}}.
+     */
+    @PostMapping("/resumable")
+    @ResponseStatus(CREATED)
+    public BatchResponse createResumable(
+            @RequestParam("name") String name,
+            @RequestParam("length") long length,
+            @RequestParam(name = "continuity", required = false) Continuity continuity) {
+        var batch = resumableUploadService.createResumable(name, length, continuity);
+
+        return BatchResponse.from(batch);
+    }
+
+    @PutMapping("/{id}")
+    public BatchResponse uploadChunk(
+            @PathVariable UUID id,
+            @RequestHeader(CONTENT_RANGE) String contentRange,
+            HttpServletRequest request) throws IOException {
+        var batch = resumableUploadService.uploadChunk(id, contentRange, request.getInputStream());
+
+        return BatchResponse.from(batch);
+    }
+
+    @PostMapping("/{id}/resume")
+    @ResponseStatus(ACCEPTED)
+    public BatchResponse resume(@PathVariable UUID id) {
+        var batch = resumableUploadService.resume(id);
+
+        return BatchResponse.from(batch);
+    }
+
+    @GetMapping("/{id}")
+    public BatchResponse get(@PathVariable UUID id) {
+        var batch = uploadService.getBatch(id);
+
+        return BatchResponse.from(batch);
+    }
+
+    /**
+     * Return how far the batch is. Rows and bytes are live while the batch is running on this instance.
+     */
+    @GetMapping("/{id}/progress")
+    public Progress progress(@PathVariable UUID id) {
+        return progressService.getProgress(id);
+    }
+
+    /**
+     * Send a {@code progress} event every second until the batch is completed or failed.
+     */
+    @GetMapping(path = "/{id}/progress", produces = TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(@PathVariable UUID id) {
+        return progressService.streamProgress(id);
+    }
 
-    @PostMapping
-    public void upload(@RequestParam("file") MultipartFile file, HttpServletResponse response) {
-        uploadService.upload(file, response);
+    @GetMapping("/{id}/report")
+    public void report(
+            @PathVariable UUID id,
+            @RequestParam(name = "format", required = false) String format,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        reportService.report(id, format, request, response);
     }
 }
@@ -1,6 +1,7 @@
 package nl.surepay.validator.entity;
 
 import lombok.Data;
+import nl.surepay.validator.model.Continuity;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
@@ -16,10 +17,62 @@ public class Batch {
 
     private Status status = Status.RUNNING;
 
+    /**
+     * Extension of the processor that read the uploaded file. The stored report is written back in the same format.
+     */
+    private String fileType;
+
+    /**
+     * How the balances of the rows are checked against the rows before them. It is part of the report, so only a
+     * batch with the same continuity is a replay of a new upload.
+     */
+    private Continuity continuity = Continuity.NONE;
+
+    /**
+     * SHA-256 of the uploaded content, see {@link nl.surepay.validator.util.ContentHash}. A completed batch with the
+     * same hash has the report of a new upload of the same content.
+     */
+    private String contentHash;
+
+    /**
+     * Name of the file of a resumable upload. It decides the processor once all bytes are received.
+     */
+    private String fileName;
+
+    /**
+     * Total number of bytes of a resumable upload, or null if the file was uploaded in a single request.
+     */
+    private Long uploadLength;
+
+    /**
+     * Number of bytes of a resumable upload that are stored. The next chunk has to start at this offset.
+     */
+    private long receivedBytes;
+
+    /**
+     * Number of rows whose transactions and reports are saved. Processing resumes after this row.
+     */
+    private long processedRows;
+
+    /**
+     * Number of the processed rows with a report, other than a duplicate reference.
+     */
+    private long invalidRows;
+
+    /**
+     * Number of the processed rows with a duplicate reference.
+     */
+    private long duplicateRows;
+
+    /**
+     * Number of report lines saved so far, which is the line of the next report.
+     */
+    private long reportLines;
+
     @CreatedDate
     private Instant createdAt;
 
     public enum Status {
-        RUNNING, FAILED, COMPLETED
+        UPLOADING, QUEUED, RUNNING, FAILED, COMPLETED
     }
 }
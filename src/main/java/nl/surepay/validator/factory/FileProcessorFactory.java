@@ -1,11 +1,16 @@
 package nl.surepay.validator.factory;
 
 import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.processor.CompressedFileProcessor;
+import nl.surepay.validator.processor.Compression;
 import nl.surepay.validator.processor.FileProcessor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -20,8 +25,24 @@ public class FileProcessorFactory {
         this.processors = processors.stream().collect(Collectors.toMap(FileProcessor::supports, Function.identity()));
     }
 
+    /**
+     * Return the processor of the {@param fileName}. A compressed file like {@code records.csv.gz} is read by the
+     * processor of the extension before the compression.
+     */
     public FileProcessor getProcessor(String fileName) {
         var extension = getExtension(fileName);
+        var compression = Compression.fromExtension(extension);
+
+        if (compression.isPresent()) {
+            var name = fileName.substring(0, fileName.length() - extension.length() - 1);
+
+            return new CompressedFileProcessor(getProcessorByExtension(getExtension(name)), compression.get());
+        }
+
+        return getProcessorByExtension(extension);
+    }
+
+    public FileProcessor getProcessorByExtension(String extension) {
         var processor = processors.get(extension);
 
         if (processor == null) {
@@ -31,6 +52,59 @@ public class FileProcessorFactory {
         return processor;
     }
 
+    /**
+     * Return the processor of the report {@param format}, like {@code csv} or {@code json}.
+     */
+    public FileProcessor getProcessorByFormat(String format) {
+        var processor = processors.get(format.toLowerCase(Locale.ROOT));
+
+        if (processor == null) {
+            throw new StatusException(BAD_REQUEST, "validation.format.notSupported", new Object[]{format}, "/query/format");
+        }
+
+        return processor;
+    }
+
+    /**
+     * Return the processor of a request body with the {@param contentType} and {@param contentEncoding}. Parameters
+     * like the charset are ignored. A body with a compressed encoding is decompressed before it is read.
+     */
+    public FileProcessor getProcessorByContentType(String contentType, String contentEncoding) {
+        var processor = getProcessorByContentType(contentType);
+
+        if (StringUtils.isEmpty(contentEncoding) || contentEncoding.equalsIgnoreCase("identity")) {
+            return processor;
+        }
+
+        var compression = Compression.fromEncoding(contentEncoding.trim())
+                .orElseThrow(() -> new StatusException(BAD_REQUEST, "validation.contentEncoding.notSupported", new Object[]{contentEncoding}, "/header/Content-Encoding"));
+
+        return new CompressedFileProcessor(processor, compression);
+    }
+
+    /**
+     * Return the processor of a request body with the {@param contentType}. Parameters like the charset are ignored.
+     */
+    public FileProcessor getProcessorByContentType(String contentType) {
+        if (StringUtils.isEmpty(contentType)) {
+            throw new StatusException(BAD_REQUEST, "validation.contentType.empty", "/header/Content-Type");
+        }
+
+        MediaType mediaType;
+
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new StatusException(BAD_REQUEST, "validation.contentType.notSupported", new Object[]{contentType}, "/header/Content-Type");
+        }
+
+        return processors.values()
+                .stream()
+                .filter(processor -> processor.mediaType().equalsTypeAndSubtype(mediaType))
+                .findFirst()
+                .orElseThrow(() -> new StatusException(BAD_REQUEST, "validation.contentType.notSupported", new Object[]{contentType}, "/header/Content-Type"));
+    }
+
     private String getExtension(String fileName) {
         var index = fileName.lastIndexOf('.');
 
@@ -0,0 +1,29 @@
+package nl.surepay.validator.model;
+
+/**
+ * A reference of an account. A reference is unique per batch, and should not be reused by other batches of the same
+ * account either.
+ */
+public record AccountReference(String accountNumber, long reference) {
+    /**
+     * 64-bit hash of the account number and the reference, for {@link nl.surepay.validator.util.BloomFilter}. Trailing
+     * spaces of the account number are ignored, like the blank padded column does.
+     */
+    public static long hash(String accountNumber, long reference) {
+        var length = accountNumber.length();
+
+        while (length > 0 && accountNumber.charAt(length - 1) == ' ') {
+            length--;
+        }
+
+        // FNV-1a over the characters of the account number.
+        var hash = 0xCBF29CE484222325L;
+
+        for (var i = 0; i < length; i++) {
+            hash ^= accountNumber.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        return hash * 31 + reference;
+    }
+}
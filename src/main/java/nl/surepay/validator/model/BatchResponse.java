@@ -0,0 +1,30 @@
+package nl.surepay.validator.model;
+
+import nl.surepay.validator.entity.Batch;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * @param uploadLength  the size of a resumable upload, or null if the file was uploaded in a single request.
+ * @param receivedBytes the number of bytes of a resumable upload that are stored.
+ * @param processedRows the number of rows that are saved as of the last checkpoint.
+ */
+public record BatchResponse(
+        UUID id,
+        Batch.Status status,
+        Long uploadLength,
+        long receivedBytes,
+        long processedRows,
+        Instant createdAt
+) {
+    public static BatchResponse from(Batch batch) {
+        return new BatchResponse(
+                batch.getId(),
+                batch.getStatus(),
+                batch.getUploadLength(),
+                batch.getReceivedBytes(),
+                batch.getProcessedRows(),
+                batch.getCreatedAt());
+    }
+}
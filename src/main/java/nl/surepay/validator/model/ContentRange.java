@@ -0,0 +1,45 @@
+package nl.surepay.validator.model;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The {@code Content-Range} of a chunk of a resumable upload, like {@code bytes 0-1048575/5242880}.
+ *
+ * @param start  the offset of the first byte of the chunk.
+ * @param end    the offset of the last byte of the chunk, inclusive.
+ * @param length the total number of bytes of the upload.
+ */
+public record ContentRange(long start, long end, long length) {
+    private static final Pattern PATTERN = Pattern.compile("bytes (\\d{1,18})-(\\d{1,18})/(\\d{1,18})");
+
+    /**
+     * @return the range, or empty if the {@param value} is not a valid range of a known length.
+     */
+    public static Optional<ContentRange> parse(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+
+        var matcher = PATTERN.matcher(value.trim());
+
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        var range = new ContentRange(
+                Long.parseLong(matcher.group(1)),
+                Long.parseLong(matcher.group(2)),
+                Long.parseLong(matcher.group(3)));
+
+        if (range.start() > range.end() || range.end() >= range.length()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(range);
+    }
+
+    public long size() {
+        return end - start + 1;
+    }
+}
@@ -0,0 +1,17 @@
+package nl.surepay.validator.model;
+
+public enum Continuity {
+    /**
+     * Every row is only checked on its own.
+     */
+    NONE,
+    /**
+     * The start balance of a row has to be the end balance of the previous row of the same account in the upload.
+     */
+    BATCH,
+    /**
+     * Same as {@link #BATCH}, and the first row of an account has to continue from the last saved transaction of the
+     * account in another batch.
+     */
+    ACCOUNT
+}
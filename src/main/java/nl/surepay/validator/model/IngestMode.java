@@ -0,0 +1,12 @@
+package nl.surepay.validator.model;
+
+public enum IngestMode {
+    /**
+     * Multi-row insert statements. Best for small and medium files.
+     */
+    INSERT,
+    /**
+     * PostgreSQL COPY into a staging table followed by a set-based merge. Best for very large files.
+     */
+    COPY
+}
@@ -0,0 +1,49 @@
+package nl.surepay.validator.model;
+
+import nl.surepay.validator.entity.Batch;
+
+import java.util.UUID;
+
+/**
+ * @param rows          the number of rows that are processed.
+ * @param validRows     the number of processed rows without a report.
+ * @param invalidRows   the number of processed rows with a report, other than a duplicate reference.
+ * @param duplicateRows the number of processed rows with a duplicate reference.
+ * @param bytesRead     the number of bytes read from the file, or null if the batch is not running on this instance.
+ * @param length        the size of the file, or null if it is not known.
+ * @param rowsPerSecond the number of rows processed per second since the batch started running.
+ * @param etaSeconds    the estimated number of seconds until all bytes are read, or null if it is not known.
+ */
+public record Progress(
+        UUID id,
+        Batch.Status status,
+        long rows,
+        long validRows,
+        long invalidRows,
+        long duplicateRows,
+        Long bytesRead,
+        Long length,
+        double rowsPerSecond,
+        Long etaSeconds
+) {
+    /**
+     * The progress of a batch that is not running on this instance, as of its last checkpoint or when it completed.
+     */
+    public static Progress from(Batch batch) {
+        return new Progress(
+                batch.getId(),
+                batch.getStatus(),
+                batch.getProcessedRows(),
+                batch.getProcessedRows() - batch.getInvalidRows() - batch.getDuplicateRows(),
+                batch.getInvalidRows(),
+                batch.getDuplicateRows(),
+                null,
+                batch.getUploadLength(),
+                0,
+                null);
+    }
+
+    public boolean isDone() {
+        return status == Batch.Status.COMPLETED || status == Batch.Status.FAILED;
+    }
+}
@@ -2,68 +2,32 @@ package nl.surepay.validator.model;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import nl.surepay.validator.util.Cents;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 
+/**
+ * A row of a statement. The balances are in cents, see {@link Cents}.
+ */
 public record RowValue(
         long reference,
         String accountNumber,
         String description,
-        BigDecimal startBalance,
-        BigDecimal mutation,
-        BigDecimal endBalance
+        long startBalance,
+        long mutation,
+        long endBalance
 ) {
-    /**
-     * Create an instance of {@link RowValue} based on the {@param line} string array. This method will validate the
-     * contents of the line based on the following:
-     * <ol>
-     *     <li>{@param line} has a size of 6 columns.</li>
-     *     <li>Reference is a valid long value.</li>
-     *     <li>Account number is not null.</li>
-     *     <li>Description is not null.</li>
-     *     <li>Start balance is a valid instance of {@link BigDecimal}.</li>
-     *     <li>Mutation is a valid instance of {@link BigDecimal}.</li>
-     *     <li>End balance is a valid instance of {@link BigDecimal}.</li>
-     * </ol>
-     *
-     * @param line the csv line to parse.
-     * @return an instance of {@link RowValue} with the contents from {@param line}
-     * @throws IOException if any of the validations fail.
-     */
-    public static RowValue fromLine(String[] line) throws IOException {
-        if (line.length != 6) {
-            throw new IOException("Invalid number of columns");
-        }
-
-        var reference = toLong("Reference", line[0]);
-        var accountNumber = line[1];
-
-        if (accountNumber == null) {
-            throw new IOException("Account number is missing");
-        }
-
-        var description = line[2];
-
-        if (description == null) {
-            throw new IOException("Description is missing");
-        }
-
-        var startBalance = toBigDecimal("Start balance", line[3]);
-        var mutation = toBigDecimal("Mutation", line[4]);
-        var endBalance = toBigDecimal("End balance", line[5]);
-
-        return new RowValue(reference, accountNumber, description, startBalance, mutation, endBalance);
-    }
+    // Outside the range of Cents, so it can not be a parsed balance.
+    private static final long MISSING = Long.MIN_VALUE;
 
     /**
      * Create an instance of {@link RowValue} based on the {@link JsonParser} content. This method will validate the
      * contents of the line based on the following:
      * <ol>
      *     <li>Reference is a valid long value.</li>
-     *     <li>Start balance is a valid instance of {@link BigDecimal}.</li>
-     *     <li>Mutation is a valid instance of {@link BigDecimal}.</li>
-     *     <li>End balance is a valid instance of {@link BigDecimal}.</li>
+     *     <li>Start balance is a valid amount, see {@link Cents#parse(String)}.</li>
+     *     <li>Mutation is a valid amount.</li>
+     *     <li>End balance is a valid amount.</li>
      *     <li>All fields are not null.</li>
      * </ol>
      *
@@ -75,25 +39,41 @@ public record RowValue(
         long reference = 0;
         String accountNumber = null;
         String description = null;
-        BigDecimal startBalance = null;
-        BigDecimal mutation = null;
-        BigDecimal endBalance = null;
+        var startBalance = MISSING;
+        var mutation = MISSING;
+        var endBalance = MISSING;
+        // The first invalid value. It is thrown after the end of the object, so the next object can still be read.
+        IOException error = null;
 
         while (parser.nextToken() != JsonToken.END_OBJECT) {
+            // Field names are canonicalized by the parser, so this is the same instance for every row.
             var fieldName = parser.currentName();
             // Go to the value
-            parser.nextToken();
-            // Now get the value
-            var value = parser.getValueAsString();
-
-            switch (fieldName) {
-                case "reference" -> reference = toLong("Reference", value);
-                case "accountNumber" -> accountNumber = value;
-                case "description" -> description = value;
-                case "startBalance" -> startBalance = toBigDecimal("Start balance", value);
-                case "mutation" -> mutation = toBigDecimal("Mutation", value);
-                case "endBalance" -> endBalance = toBigDecimal("End balance", value);
+            var token = parser.nextToken();
+
+            try {
+                switch (fieldName) {
+                    case "reference" -> reference = toLong("Reference", parser, token);
+                    case "accountNumber" -> accountNumber = parser.getValueAsString();
+                    case "description" -> description = parser.getValueAsString();
+                    case "startBalance" -> startBalance = toCents("Start balance", parser, token);
+                    case "mutation" -> mutation = toCents("Mutation", parser, token);
+                    case "endBalance" -> endBalance = toCents("End balance", parser, token);
+                    default -> {
+                    }
+                }
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
             }
+
+            // Values are never objects or arrays, so skip their content.
+            parser.skipChildren();
+        }
+
+        if (error != null) {
+            throw error;
         }
 
         if (reference == 0) {
@@ -108,35 +88,97 @@ public record RowValue(
             throw new IOException("Description is missing");
         }
 
-        if (startBalance == null) {
+        if (startBalance == MISSING) {
             throw new IOException("Start balance is missing");
         }
 
-        if (mutation == null) {
+        if (mutation == MISSING) {
             throw new IOException("Mutation is missing");
         }
 
-        if (endBalance == null) {
+        if (endBalance == MISSING) {
             throw new IOException("End balance is missing");
         }
 
         return new RowValue(reference, accountNumber, description, startBalance, mutation, endBalance);
     }
 
-    private static long toLong(String name, String value) throws IOException {
-        try {
-            return Long.parseLong(value);
-        } catch (NumberFormatException e) {
-            throw new IOException("%s is not a valid number".formatted(name));
+    /**
+     * Read the value as a long. A number is read by the parser, other scalar values are parsed from the characters in
+     * the buffer of the parser, so no {@link String} is created for them.
+     */
+    private static long toLong(String name, JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+            return parser.getLongValue();
+        }
+
+        if (!isText(token)) {
+            throw notANumber(name);
+        }
+
+        var chars = parser.getTextCharacters();
+        var i = parser.getTextOffset();
+        var end = i + parser.getTextLength();
+        var negative = false;
+
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        if (i == end) {
+            throw notANumber(name);
+        }
+
+        // Accumulate negatively, like Long.parseLong, so that Long.MIN_VALUE fits.
+        var result = 0L;
+
+        for (; i < end; i++) {
+            var digit = chars[i] - '0';
+
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw notANumber(name);
+            }
+
+            result = result * 10 - digit;
         }
+
+        if (!negative && result == Long.MIN_VALUE) {
+            throw notANumber(name);
+        }
+
+        return negative ? result : -result;
     }
 
-    private static BigDecimal toBigDecimal(String name, String value) throws IOException {
+    /**
+     * Parse the value as an amount from the characters in the buffer of the parser. A number keeps the text it has in
+     * the file, so it is read like a string: the exponent of {@code 1.5e2} is applied, and only a value that has more
+     * than 2 decimals after applying it is rejected.
+     */
+    private static long toCents(String name, JsonParser parser, JsonToken token) throws IOException {
+        if (!isText(token)) {
+            throw notANumber(name);
+        }
+
+        var offset = parser.getTextOffset();
+
         try {
-            return new BigDecimal(value);
+            return Cents.parse(parser.getTextCharacters(), offset, offset + parser.getTextLength());
         } catch (NumberFormatException e) {
             // Error message can be improved when we know the reference and description.
-            throw new IOException("%s is not a valid number".formatted(name));
+            throw new IOException("%s %s".formatted(name, e.getMessage()));
         }
     }
+
+    /**
+     * @return whether the {@param token} is a value with a text, the same values that
+     * {@link JsonParser#getValueAsString()} does not return null for.
+     */
+    private static boolean isText(JsonToken token) {
+        return token != null && token.isScalarValue() && token != JsonToken.VALUE_NULL;
+    }
+
+    private static IOException notANumber(String name) {
+        return new IOException("%s is not a valid number".formatted(name));
+    }
 }
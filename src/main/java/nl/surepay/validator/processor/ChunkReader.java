@@ -0,0 +1,15 @@
+package nl.surepay.validator.processor;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Reads a file in chunks that end on a row, so every chunk can be parsed on its own.
+ */
+interface ChunkReader extends Iterator<ByteBuffer>, Closeable {
+    /**
+     * @return the number of bytes of the file up to the end of the last chunk that was returned.
+     */
+    long position();
+}
@@ -0,0 +1,67 @@
+package nl.surepay.validator.processor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.util.CountingInputStream;
+import nl.surepay.validator.writer.FileWriter;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads compressed files with the {@link FileProcessor} of their content. Everything but reading is done by that
+ * processor, so the report has the same format as the report of an uncompressed file.
+ */
+public class CompressedFileProcessor implements FileProcessor {
+    private final FileProcessor delegate;
+    private final Compression compression;
+
+    public CompressedFileProcessor(FileProcessor delegate, Compression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    public FileProcessor delegate() {
+        return delegate;
+    }
+
+    public Compression compression() {
+        return compression;
+    }
+
+    @Override
+    public String supports() {
+        return delegate.supports();
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return delegate.mediaType();
+    }
+
+    @Override
+    public Stream<RowResult> read(InputStream inputStream) throws IOException {
+        return delegate.read(compression.decompress(inputStream));
+    }
+
+    /**
+     * A compressed file can not be split at an arbitrary byte, so it is always read as a stream. The bytes read are the
+     * compressed ones, like the size of the file.
+     */
+    @Override
+    public Stream<RowResult> read(Path path, LongConsumer bytesRead) throws IOException {
+        return read(new CountingInputStream(Files.newInputStream(path), bytesRead));
+    }
+
+    @Override
+    public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        return delegate.createWriter(id, request, response);
+    }
+}
@@ -0,0 +1,61 @@
+package nl.surepay.validator.processor;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats of uploaded files. A compressed file has the extension of the format after the extension of the
+ * content, like {@code records.csv.gz}. A compressed request body has the format in the {@code Content-Encoding}
+ * header.
+ */
+public enum Compression {
+    GZIP("gz", "gzip", "x-gzip") {
+        @Override
+        public InputStream decompress(InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        }
+    },
+    ZSTD("zst", "zstd") {
+        @Override
+        public InputStream decompress(InputStream inputStream) throws IOException {
+            return new ZstdInputStream(inputStream);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+    private final String[] encodings;
+
+    Compression(String extension, String... encodings) {
+        this.extension = extension;
+        this.encodings = encodings;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Wrap the {@param inputStream} so that it returns the decompressed bytes. The content is decompressed while it is
+     * read, so the whole file is never in memory.
+     */
+    public abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+    public static Optional<Compression> fromExtension(String extension) {
+        return Arrays.stream(values())
+                .filter(compression -> compression.extension.equalsIgnoreCase(extension))
+                .findFirst();
+    }
+
+    public static Optional<Compression> fromEncoding(String encoding) {
+        return Arrays.stream(values())
+                .filter(compression -> Arrays.stream(compression.encodings).anyMatch(encoding::equalsIgnoreCase))
+                .findFirst();
+    }
+}
@@ -0,0 +1,96 @@
+package nl.surepay.validator.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads csv content in chunks of at least {@code chunkSize} bytes that end right after a record. A newline inside a
+ * quoted field does not end a record, so every chunk can be parsed on its own. The chunks are slices of the
+ * {@link MappedFile}, so splitting the file does not copy it.
+ */
+class CsvChunkReader implements ChunkReader {
+    private final MappedFile file;
+    private final int chunkSize;
+    // Start of the next chunk.
+    private long position;
+
+    CsvChunkReader(MappedFile file, int chunkSize) {
+        this.file = file;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < file.size();
+    }
+
+    @Override
+    public ByteBuffer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var start = position;
+        var end = recordEnd(start + chunkSize);
+
+        position = end;
+
+        return file.slice(start, end);
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Return the index right after the first newline from {@param from} that is not inside a quoted field, or the end
+     * of the file if there is none. The chunk always starts at a record, so it is scanned from {@link #position} to
+     * know whether a newline is quoted. Quotes follow the rules of {@link CsvTokenizer}: a quote only opens a quoted
+     * field at the start of a field, so a quote in the middle of a value like {@code 5" screen} is a plain byte.
+     */
+    private long recordEnd(long from) {
+        var size = file.size();
+        var quoted = false;
+        // Whether no byte of the current field was read yet.
+        var fieldStart = true;
+
+        for (var i = position; i < size; i++) {
+            var b = file.get(i);
+
+            if (quoted) {
+                if (b != '"') {
+                    continue;
+                }
+
+                if (i + 1 < size && file.get(i + 1) == '"') {
+                    // An escaped quote.
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (b == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (b == ',') {
+                fieldStart = true;
+            } else if (b == '\n') {
+                if (i + 1 >= from) {
+                    return i + 1;
+                }
+
+                fieldStart = true;
+            } else {
+                fieldStart = false;
+            }
+        }
+
+        return size;
+    }
+}
@@ -1,90 +1,162 @@
 package nl.surepay.validator.processor;
 
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
 import nl.surepay.validator.model.RowResult;
-import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.CountingInputStream;
 import nl.surepay.validator.writer.CsvFileWriter;
 import nl.surepay.validator.writer.FileWriter;
+import nl.surepay.validator.writer.ResponseEncoding;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class CsvFileProcessor implements FileProcessor {
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv");
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    // Csv has no way to tell its encoding, so the report says it in the header.
+    private static final String REPORT_CONTENT_TYPE = TEXT_CSV_VALUE + ";charset=UTF-8";
+
+    private final UploadProperties uploadProperties;
+    private final ForkJoinPool parsePool;
+
     @Override
     public String supports() {
         return "csv";
     }
 
+    @Override
+    public MediaType mediaType() {
+        return TEXT_CSV;
+    }
+
     @Override
     public Stream<RowResult> read(InputStream inputStream) {
-        var reader = new InputStreamReader(inputStream);
-        var csvReader = new CSVReaderBuilder(reader)
-                // Skip header
-                .withSkipLines(1)
-                .build();
+        var tokenizer = new CsvTokenizer(inputStream);
         var lineNumber = new AtomicLong();
 
+        // Skip header
+        skip(tokenizer);
+
         return Stream
-                .generate(() -> readNextLine(csvReader, lineNumber))
+                .generate(() -> readNextLine(tokenizer, lineNumber))
                 .takeWhile(Objects::nonNull)
-                .onClose(() -> onClose(reader, csvReader));
+                .onClose(() -> onClose(tokenizer));
+    }
+
+    /**
+     * Large files are mapped into memory and split into chunks that end on a record, and the chunks are parsed in
+     * parallel on the {@link ForkJoinPool}, straight from the mapping. The results are returned in the same order and
+     * with the same line numbers as {@link #read(InputStream)} would.
+     */
+    @Override
+    public Stream<RowResult> read(Path path, LongConsumer bytesRead) throws IOException {
+        var parallel = uploadProperties.parallel();
+
+        if (Files.size(path) < parallel.threshold().toBytes()) {
+            return read(new CountingInputStream(Files.newInputStream(path), bytesRead));
+        }
+
+        var chunkReader = new CsvChunkReader(new MappedFile(path), (int) parallel.chunkSize().toBytes());
+        var chunks = new ParallelChunks(
+                chunkReader,
+                parsePool,
+                parsePool.getParallelism() * 2,
+                this::readChunk,
+                bytesRead);
+        var spliterator = Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false)
+                .flatMap(List::stream)
+                .onClose(chunks::close);
     }
 
     @Override
-    public FileWriter createWriter(UUID id, HttpServletResponse response) throws IOException {
+    public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
         // Set the headers of the HTTP response.
-        response.setContentType("text/csv");
+        response.setContentType(REPORT_CONTENT_TYPE);
         response.setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.csv".formatted(id));
 
-        return new CsvFileWriter(response.getWriter());
+        var flushThreshold = (int) uploadProperties.report().flushThreshold().toBytes();
+
+        return new CsvFileWriter(ResponseEncoding.open(request, response), flushThreshold);
     }
 
-    private RowResult readNextLine(CSVReader csvReader, AtomicLong lineNumber) {
+    private RowResult readNextLine(CsvTokenizer tokenizer, AtomicLong lineNumber) {
         var i = lineNumber.incrementAndGet();
-        String[] line;
-        RowValue rowValue;
+
+        if (!skip(tokenizer)) {
+            return null;
+        }
 
         try {
-            line = csvReader.readNext();
+            return new RowResult.Valid(tokenizer.value());
+        } catch (IOException e) {
+            return new RowResult.Invalid(e.getMessage(), i);
+        }
+    }
 
-            if (line == null) {
-                return null;
-            }
+    /**
+     * Parse all the records of the {@param chunk}. The line numbers start at 1 for the first record of the chunk.
+     */
+    private List<RowResult> readChunk(ByteBuffer chunk, boolean skipHeader) {
+        var tokenizer = new CsvTokenizer(chunk);
+        var results = new ArrayList<RowResult>();
+        var lineNumber = new AtomicLong();
 
-            rowValue = RowValue.fromLine(line);
-        } catch (IOException | CsvValidationException e) {
-            return new RowResult.Invalid(e.getMessage(), i);
+        if (skipHeader) {
+            skip(tokenizer);
         }
 
-        return new RowResult.Valid(rowValue);
+        for (var result = readNextLine(tokenizer, lineNumber); result != null; result = readNextLine(tokenizer, lineNumber)) {
+            results.add(result);
+        }
+
+        return results;
     }
 
-    private void onClose(Reader reader, CSVReader csvReader) {
+    /**
+     * Move the {@param tokenizer} to the next record. A failure of the underlying stream is not a problem of the
+     * record, so it is not reported as an invalid row.
+     */
+    private static boolean skip(CsvTokenizer tokenizer) {
         try {
-            reader.close();
+            return tokenizer.next();
         } catch (IOException e) {
-            log.warn("Failed to close Reader", e);
+            throw new UncheckedIOException(e);
         }
+    }
 
+    private void onClose(CsvTokenizer tokenizer) {
         try {
-            csvReader.close();
+            tokenizer.close();
         } catch (IOException e) {
-            log.warn("Failed to close CSVReader", e);
+            log.warn("Failed to close CsvTokenizer", e);
         }
     }
 }
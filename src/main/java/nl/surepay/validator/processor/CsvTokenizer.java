@@ -0,0 +1,266 @@
+package nl.surepay.validator.processor;
+
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.Cents;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streaming tokenizer for the 6 column statement csv format. The bytes of a record are copied, unquoted, into a
+ * reusable buffer. The reference and the balances (as cents) are parsed directly from that buffer, so only the account
+ * number and the description become strings.
+ * <p>
+ * The content is read from a stream into a buffer of its own, or straight from a {@link ByteBuffer}, like a slice of
+ * a {@link MappedFile}.
+ * <p>
+ * Fields follow RFC 4180: a field that starts with a quote ends at the next single quote, {@code ""} inside it is a
+ * quote, and separators and newlines inside it are part of the value. A {@code \r} before the newline that ends a
+ * record is dropped.
+ */
+class CsvTokenizer implements Closeable {
+    static final int COLUMNS = 6;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    // The unquoted bytes of the current record. Field i is record[starts[i]..ends[i]).
+    private byte[] record = new byte[256];
+    private final int[] starts = new int[COLUMNS];
+    private final int[] ends = new int[COLUMNS];
+    private int columns;
+    private String error;
+    // Scratch for parsing the balances.
+    private char[] chars = new char[32];
+
+    CsvTokenizer(InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.buffer = ByteBuffer.wrap(new byte[BUFFER_SIZE]);
+    }
+
+    CsvTokenizer(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Read the bytes from the position to the limit of {@param bytes}. The position of the buffer is not changed.
+     */
+    CsvTokenizer(ByteBuffer bytes) {
+        this.inputStream = null;
+        this.buffer = bytes;
+        this.position = bytes.position();
+        this.limit = bytes.limit();
+        this.eof = true;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return {@code false} if there are no more records.
+     * @throws IOException if the underlying stream fails.
+     */
+    boolean next() throws IOException {
+        if (!ensure()) {
+            return false;
+        }
+
+        var length = 0;
+        var start = 0;
+        var quoted = false;
+        // Whether the current field started with a quote. Bytes after its closing quote are kept as they are.
+        var quotedField = false;
+
+        columns = 0;
+        error = null;
+
+        while (ensure()) {
+            var b = buffer.get(position++);
+
+            if (quoted) {
+                if (b != '"') {
+                    length = append(length, b);
+                } else if (ensure() && buffer.get(position) == '"') {
+                    position++;
+                    length = append(length, b);
+                } else {
+                    quoted = false;
+                }
+
+                continue;
+            }
+
+            if (b == ',') {
+                field(start, length);
+                start = length;
+                quotedField = false;
+            } else if (b == '\n') {
+                if (!quotedField && length > start && record[length - 1] == '\r') {
+                    length--;
+                }
+
+                field(start, length);
+
+                return true;
+            } else if (b == '"' && length == start && !quotedField) {
+                quoted = true;
+                quotedField = true;
+            } else {
+                length = append(length, b);
+            }
+        }
+
+        if (quoted) {
+            error = "Un-terminated quoted field at end of CSV line";
+        }
+
+        field(start, length);
+
+        return true;
+    }
+
+    /**
+     * Create an instance of {@link RowValue} from the current record. The record must have 6 columns, the reference
+     * must be a valid long value and the balances must be valid amounts, see {@link Cents#parse(char[], int, int)}.
+     *
+     * @throws IOException if any of the validations fail.
+     */
+    RowValue value() throws IOException {
+        if (error != null) {
+            throw new IOException(error);
+        }
+
+        if (columns != COLUMNS) {
+            throw new IOException("Invalid number of columns");
+        }
+
+        var reference = parseLong("Reference", 0);
+        var accountNumber = string(1);
+        var description = string(2);
+        var startBalance = parseCents("Start balance", 3);
+        var mutation = parseCents("Mutation", 4);
+        var endBalance = parseCents("End balance", 5);
+
+        return new RowValue(reference, accountNumber, description, startBalance, mutation, endBalance);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+        }
+    }
+
+    private boolean ensure() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+
+        if (eof) {
+            return false;
+        }
+
+        var read = inputStream.read(buffer.array(), 0, buffer.capacity());
+
+        if (read < 0) {
+            eof = true;
+
+            return false;
+        }
+
+        position = 0;
+        limit = read;
+
+        return read > 0 || ensure();
+    }
+
+    private int append(int length, byte b) {
+        if (length == record.length) {
+            record = Arrays.copyOf(record, length * 2);
+        }
+
+        record[length] = b;
+
+        return length + 1;
+    }
+
+    private void field(int start, int end) {
+        if (columns < COLUMNS) {
+            starts[columns] = start;
+            ends[columns] = end;
+        }
+
+        columns++;
+    }
+
+    private String string(int column) {
+        return new String(record, starts[column], ends[column] - starts[column], UTF_8);
+    }
+
+    private long parseLong(String name, int column) throws IOException {
+        var i = starts[column];
+        var end = ends[column];
+        var negative = false;
+
+        if (i < end && (record[i] == '-' || record[i] == '+')) {
+            negative = record[i] == '-';
+            i++;
+        }
+
+        if (i == end) {
+            throw notANumber(name);
+        }
+
+        // Accumulate negatively, like Long.parseLong, so that Long.MIN_VALUE fits.
+        var result = 0L;
+
+        for (; i < end; i++) {
+            var digit = record[i] - '0';
+
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw notANumber(name);
+            }
+
+            result = result * 10 - digit;
+        }
+
+        if (!negative && result == Long.MIN_VALUE) {
+            throw notANumber(name);
+        }
+
+        return negative ? result : -result;
+    }
+
+    private long parseCents(String name, int column) throws IOException {
+        var start = starts[column];
+        var length = ends[column] - start;
+
+        if (length > chars.length) {
+            chars = new char[length];
+        }
+
+        // Bytes that are not ASCII become chars of 0xFF80 and up, which are not digits.
+        for (var i = 0; i < length; i++) {
+            chars[i] = (char) record[start + i];
+        }
+
+        try {
+            return Cents.parse(chars, 0, length);
+        } catch (NumberFormatException e) {
+            throw new IOException("%s %s".formatted(name, e.getMessage()));
+        }
+    }
+
+    private static IOException notANumber(String name) {
+        return new IOException("%s is not a valid number".formatted(name));
+    }
+}
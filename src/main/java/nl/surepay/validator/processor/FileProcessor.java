@@ -1,12 +1,18 @@
 package nl.surepay.validator.processor;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.util.CountingInputStream;
 import nl.surepay.validator.writer.FileWriter;
+import org.springframework.http.MediaType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.UUID;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
 public interface FileProcessor {
@@ -17,6 +23,14 @@ public interface FileProcessor {
      */
     String supports();
 
+    /**
+     * Return the media type of the content that the implementation reads. It is used to pick the processor of a
+     * request body that is not a multipart file.
+     *
+     * @return a media type without parameters
+     */
+    MediaType mediaType();
+
     /**
      * Read the contents if the {@param inputStream} and return a {@link Stream} instance that
      * generates a chunk of the buffer.
@@ -28,12 +42,41 @@ public interface FileProcessor {
     Stream<RowResult> read(InputStream inputStream) throws IOException;
 
     /**
-     * Creates an instance of the {@link FileWriter} based on the supported extension.
+     * Read the contents of the file at {@param path}. Implementations can override this to make use of random access,
+     * like parsing chunks of the file in parallel. The order of the results must be the same as
+     * {@link #read(InputStream)}.
+     *
+     * @param path the file which the stream will read from
+     * @return instance of {@link Stream} that returns each chunk of the buffer.
+     * @throws IOException if there are IO exceptions
+     */
+    default Stream<RowResult> read(Path path) throws IOException {
+        return read(path, bytes -> {
+        });
+    }
+
+    /**
+     * Read the contents of the file at {@param path} like {@link #read(Path)}, and tell how far the file is read.
+     *
+     * @param path      the file which the stream will read from
+     * @param bytesRead called with the number of bytes of the file that were read since the last call.
+     * @return instance of {@link Stream} that returns each chunk of the buffer.
+     * @throws IOException if there are IO exceptions
+     */
+    default Stream<RowResult> read(Path path, LongConsumer bytesRead) throws IOException {
+        return read(new CountingInputStream(Files.newInputStream(path), bytesRead));
+    }
+
+    /**
+     * Creates an instance of the {@link FileWriter} based on the supported extension. The content is gzip compressed
+     * when the {@code Accept-Encoding} of the {@param request} allows it, see
+     * {@link nl.surepay.validator.writer.ResponseEncoding}.
      *
      * @param id       unique ID to include as identifier. This ID could be written as a header value.
+     * @param request  the {@link HttpServletRequest} with the headers to negotiate the encoding with.
      * @param response the {@link HttpServletResponse} of the request to write the headers and content to.
      * @return instance of {@link FileWriter}
      * @throws IOException if there are IO exceptions
      */
-    FileWriter createWriter(UUID id, HttpServletResponse response) throws IOException;
+    FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException;
 }
@@ -0,0 +1,164 @@
+package nl.surepay.validator.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a json array in chunks of at least {@code chunkSize} bytes of elements of the array. The bytes are scanned for
+ * the depth of the objects and arrays, skipping the content of strings, so a brace or comma inside a string does not
+ * end an element.
+ * <p>
+ * A chunk is a slice of the {@link MappedFile} from the first element up to the end of its last element, so it is the
+ * content of an array without the brackets. The array ends at its closing bracket or at the first element that is not
+ * an object, like reading it on a single thread does.
+ */
+class JsonChunkReader implements ChunkReader {
+    private final MappedFile file;
+    private final int chunkSize;
+    // Start of the next chunk.
+    private long position = -1;
+    // Whether the end of the array was found.
+    private boolean done;
+    private ByteBuffer next;
+
+    JsonChunkReader(MappedFile file, int chunkSize) {
+        this.file = file;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = read();
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public ByteBuffer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var chunk = next;
+        next = null;
+
+        return chunk;
+    }
+
+    /**
+     * The bytes after the last element, like the closing bracket, are part of the last chunk.
+     */
+    @Override
+    public long position() {
+        return done && next == null ? file.size() : Math.max(position, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return the next chunk, or null if there are no more elements.
+     */
+    private ByteBuffer read() {
+        if (position < 0) {
+            position = arrayStart();
+        }
+
+        var size = file.size();
+        var start = position;
+        // End of the last element that was scanned.
+        var end = start;
+        var depth = 1;
+        var quoted = false;
+        var escaped = false;
+
+        for (var i = start; i < size; i++) {
+            var b = file.get(i);
+
+            if (quoted) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    quoted = false;
+                }
+
+                continue;
+            }
+
+            switch (b) {
+                case ' ', '\t', '\n', '\r' -> {
+                }
+                case '{' -> depth++;
+                case '[' -> {
+                    if (depth == 1) {
+                        return stop(start, end);
+                    }
+
+                    depth++;
+                }
+                case '}', ']' -> {
+                    depth--;
+
+                    if (depth == 1) {
+                        end = i + 1;
+                    } else if (depth == 0) {
+                        return stop(start, end);
+                    }
+                }
+                // The next chunk starts after the comma, at the next element.
+                case ',' -> {
+                    if (depth == 1 && end > start && i - start >= chunkSize) {
+                        position = i + 1;
+
+                        return file.slice(start, end);
+                    }
+                }
+                case '"' -> {
+                    if (depth == 1) {
+                        return stop(start, end);
+                    }
+
+                    quoted = true;
+                }
+                default -> {
+                    // A number or literal as an element of the array.
+                    if (depth == 1) {
+                        return stop(start, end);
+                    }
+                }
+            }
+        }
+
+        // The file ends in the middle of an element. Keep it, so the parser reports it like it does on a single thread.
+        return stop(start, depth > 1 ? size : end);
+    }
+
+    /**
+     * @return the index right after the bracket that starts the array. The processor already checked that the file
+     * starts with an array.
+     */
+    private long arrayStart() {
+        var size = file.size();
+
+        for (var i = 0L; i < size; i++) {
+            if (file.get(i) == '[') {
+                return i + 1;
+            }
+        }
+
+        return size;
+    }
+
+    private ByteBuffer stop(long start, long end) {
+        done = true;
+
+        return end > start ? file.slice(start, end) : null;
+    }
+}
@@ -3,48 +3,75 @@ package nl.surepay.validator.processor;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
 import nl.surepay.validator.error.exception.StatusException;
 import nl.surepay.validator.model.RowResult;
 import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.CountingInputStream;
 import nl.surepay.validator.writer.FileWriter;
 import nl.surepay.validator.writer.JsonFileWriter;
+import nl.surepay.validator.writer.ResponseEncoding;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JsonFileProcessor implements FileProcessor {
+    private static final byte[] ARRAY_START = {'['};
+    private static final byte[] ARRAY_END = {']'};
+
     private final ObjectMapper objectMapper;
+    private final UploadProperties uploadProperties;
+    private final ForkJoinPool parsePool;
 
     @Override
     public String supports() {
         return "json";
     }
 
+    @Override
+    public MediaType mediaType() {
+        return APPLICATION_JSON;
+    }
+
     @Override
     public Stream<RowResult> read(InputStream inputStream) throws IOException {
         var factory = objectMapper.getFactory();
         var parser = factory.createParser(inputStream);
-        var firstToken = parser.nextToken();
 
-        // Validate that the json contains an array.
-        if (firstToken != JsonToken.START_ARRAY) {
-            throw new StatusException(BAD_REQUEST, "validation.json.invalid", "/body/file");
-        }
+        validateArray(parser);
 
         var lineNumber = new AtomicLong();
 
@@ -54,13 +81,84 @@ public class JsonFileProcessor implements FileProcessor {
                 .onClose(() -> onClose(parser));
     }
 
+    /**
+     * Large files are mapped into memory and split into chunks of elements of the array, see {@link JsonChunkReader},
+     * and the chunks are parsed in parallel on the {@link ForkJoinPool}, each with its own parser. The results are
+     * returned in the same order and with the same line numbers as {@link #read(InputStream)} would. The location in
+     * the message of a syntax error is relative to the chunk.
+     */
     @Override
-    public FileWriter createWriter(UUID id, HttpServletResponse response) throws IOException {
+    public Stream<RowResult> read(Path path, LongConsumer bytesRead) throws IOException {
+        var parallel = uploadProperties.parallel();
+
+        if (Files.size(path) < parallel.threshold().toBytes()) {
+            return read(new CountingInputStream(Files.newInputStream(path), bytesRead));
+        }
+
+        try (var parser = objectMapper.getFactory().createParser(path.toFile())) {
+            validateArray(parser);
+        }
+
+        var chunkReader = new JsonChunkReader(new MappedFile(path), (int) parallel.chunkSize().toBytes());
+        var chunks = new ParallelChunks(
+                chunkReader,
+                parsePool,
+                parsePool.getParallelism() * 2,
+                this::readChunk,
+                bytesRead);
+        var spliterator = Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false)
+                .flatMap(List::stream)
+                .onClose(chunks::close);
+    }
+
+    @Override
+    public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
         // Set the headers of the HTTP response.
         response.setContentType(APPLICATION_JSON_VALUE);
         response.setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.json".formatted(id));
 
-        return new JsonFileWriter(objectMapper, response.getWriter());
+        var flushThreshold = (int) uploadProperties.report().flushThreshold().toBytes();
+
+        return new JsonFileWriter(ResponseEncoding.open(request, response), flushThreshold);
+    }
+
+    /**
+     * Validate that the json contains an array.
+     */
+    private static void validateArray(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new StatusException(BAD_REQUEST, "validation.json.invalid", "/body/file");
+        }
+    }
+
+    /**
+     * Parse all the objects of the {@param chunk}. The chunk is read as an array by putting brackets around it. The
+     * line numbers start at 1 for the first object of the chunk.
+     */
+    private List<RowResult> readChunk(ByteBuffer chunk, boolean first) {
+        var results = new ArrayList<RowResult>();
+        var lineNumber = new AtomicLong();
+        var inputStream = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(ARRAY_START),
+                new ByteBufferBackedInputStream(chunk),
+                new ByteArrayInputStream(ARRAY_END))));
+
+        try (var parser = objectMapper.getFactory().createParser(inputStream)) {
+            parser.nextToken();
+
+            var result = readObject(parser, lineNumber);
+
+            while (result != null) {
+                results.add(result);
+                result = readObject(parser, lineNumber);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return results;
     }
 
     private RowResult readObject(JsonParser parser, AtomicLong lineNumber) {
@@ -0,0 +1,84 @@
+package nl.surepay.validator.processor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file that is read through a {@link MappedByteBuffer}, so its bytes are read from the page cache without copying
+ * them into a buffer first. A mapping can not be larger than {@link Integer#MAX_VALUE} bytes, so the file is mapped in
+ * windows that move along with the bytes that are read.
+ * <p>
+ * The mappings stay valid after the file is closed, until they are garbage collected. Slices of the file can be
+ * parsed on other threads while the next part of the file is read.
+ */
+class MappedFile implements Closeable {
+    private static final int WINDOW = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int window;
+    private MappedByteBuffer mapping;
+    private long mappingStart;
+    private long mappingEnd;
+
+    MappedFile(Path path) throws IOException {
+        this(path, WINDOW);
+    }
+
+    MappedFile(Path path, int window) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.window = window;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return the byte at {@param position} of the file.
+     */
+    byte get(long position) {
+        if (position < mappingStart || position >= mappingEnd) {
+            map(position, window);
+        }
+
+        return mapping.get((int) (position - mappingStart));
+    }
+
+    /**
+     * @return the bytes {@code [from..to)} of the file, without copying them.
+     */
+    ByteBuffer slice(long from, long to) {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("A chunk of %d bytes is too large".formatted(to - from)));
+        }
+
+        if (from < mappingStart || to > mappingEnd) {
+            map(from, (int) Math.max(window, to - from));
+        }
+
+        return mapping.slice((int) (from - mappingStart), (int) (to - from));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long position, int length) {
+        try {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(length, size - position));
+            mappingStart = position;
+            mappingEnd = position + mapping.capacity();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
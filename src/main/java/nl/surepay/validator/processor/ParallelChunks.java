@@ -0,0 +1,113 @@
+package nl.surepay.validator.processor;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.model.RowResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps up to {@code window} chunks being parsed ahead of the consumer and returns their results in order. The bytes
+ * of a chunk are counted as read once its results are returned.
+ */
+@Slf4j
+class ParallelChunks implements Iterator<List<RowResult>> {
+    private final ChunkReader chunkReader;
+    private final ForkJoinPool parsePool;
+    private final int window;
+    private final ChunkParser chunkParser;
+    private final LongConsumer bytesRead;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private boolean first = true;
+    // Number of rows in the chunks that were already returned.
+    private long offset;
+    // Position in the file of the end of the chunks that were already returned.
+    private long position;
+
+    ParallelChunks(
+            ChunkReader chunkReader,
+            ForkJoinPool parsePool,
+            int window,
+            ChunkParser chunkParser,
+            LongConsumer bytesRead
+    ) {
+        this.chunkReader = chunkReader;
+        this.parsePool = parsePool;
+        this.window = window;
+        this.chunkParser = chunkParser;
+        this.bytesRead = bytesRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        submit();
+
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public List<RowResult> next() {
+        submit();
+
+        var next = pending.removeFirst();
+        var results = next.task().join();
+        var chunkOffset = offset;
+
+        offset += results.size();
+        bytesRead.accept(next.end() - position);
+        position = next.end();
+
+        // Line numbers are relative to the chunk, so shift them by the rows of the previous chunks.
+        results.replaceAll(result -> result instanceof RowResult.Invalid invalid
+                ? new RowResult.Invalid(invalid.error(), chunkOffset + invalid.lineNumber())
+                : result);
+
+        return results;
+    }
+
+    void close() {
+        pending.forEach(next -> next.task().cancel(true));
+        pending.clear();
+
+        try {
+            chunkReader.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {}", chunkReader.getClass().getSimpleName(), e);
+        }
+    }
+
+    private void submit() {
+        while (pending.size() < window && chunkReader.hasNext()) {
+            var chunk = chunkReader.next();
+            var isFirst = first;
+
+            first = false;
+            pending.addLast(new Pending(
+                    parsePool.submit(() -> chunkParser.parse(chunk, isFirst)),
+                    chunkReader.position()));
+        }
+    }
+
+    /**
+     * @param task the parsing of a chunk.
+     * @param end  the position in the file of the end of the chunk.
+     */
+    private record Pending(ForkJoinTask<List<RowResult>> task, long end) {
+    }
+
+    @FunctionalInterface
+    interface ChunkParser {
+        /**
+         * Parse all the rows of the {@param chunk}. The line numbers start at 1 for the first row of the chunk.
+         *
+         * @param first whether the chunk is the start of the file.
+         */
+        List<RowResult> parse(ByteBuffer chunk, boolean first);
+    }
+}
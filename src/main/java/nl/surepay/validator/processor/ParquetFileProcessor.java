@@ -0,0 +1,134 @@
+package nl.surepay.validator.processor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.writer.FileWriter;
+import nl.surepay.validator.writer.ParquetFileWriter;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.LocalInputFile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Reads statements in the columnar Parquet format, see {@link ParquetRowReader}, and writes the report as Parquet as
+ * well, see {@link ParquetFileWriter}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ParquetFileProcessor implements FileProcessor {
+    public static final MediaType APPLICATION_PARQUET = new MediaType("application", "vnd.apache.parquet");
+    public static final String APPLICATION_PARQUET_VALUE = "application/vnd.apache.parquet";
+
+    private final UploadProperties uploadProperties;
+
+    @Override
+    public String supports() {
+        return "parquet";
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return APPLICATION_PARQUET;
+    }
+
+    /**
+     * The metadata of a Parquet file is at the end of it, so the {@param inputStream} is copied to a temporary file
+     * first. The file is deleted when the stream is closed.
+     */
+    @Override
+    public Stream<RowResult> read(InputStream inputStream) throws IOException {
+        var spool = Files.createTempFile("upload-", ".parquet");
+
+        try (inputStream) {
+            Files.copy(inputStream, spool, StandardCopyOption.REPLACE_EXISTING);
+
+            return read(spool).onClose(() -> deleteSpool(spool));
+        } catch (IOException | RuntimeException e) {
+            deleteSpool(spool);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Read the row groups of the file in batches of {@code upload.batch-size} rows, reading only the columns of a
+     * statement. A row group counts as read with its compressed size once it is loaded.
+     */
+    @Override
+    public Stream<RowResult> read(Path path, LongConsumer bytesRead) throws IOException {
+        var fileReader = open(path);
+        ParquetRowReader rowReader;
+
+        try {
+            rowReader = new ParquetRowReader(fileReader, uploadProperties.batchSize(), bytesRead);
+        } catch (RuntimeException e) {
+            fileReader.close();
+
+            throw e;
+        }
+
+        var spliterator = Spliterators.spliteratorUnknownSize(rowReader, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false)
+                .flatMap(List::stream)
+                .onClose(rowReader::close);
+    }
+
+    /**
+     * The report is not compressed with the {@code Accept-Encoding}, since the pages of a Parquet file are already
+     * compressed.
+     */
+    @Override
+    public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Set the headers of the HTTP response.
+        response.setContentType(APPLICATION_PARQUET_VALUE);
+        response.setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.parquet".formatted(id));
+
+        return new ParquetFileWriter(response.getOutputStream());
+    }
+
+    /**
+     * Open the file and read its metadata.
+     *
+     * @throws StatusException if the file is not a Parquet file.
+     */
+    private static ParquetFileReader open(Path path) throws IOException {
+        try {
+            return ParquetFileReader.open(new LocalInputFile(path), ParquetReadOptions.builder().build());
+        } catch (RuntimeException e) {
+            // The footer could not be read, like when the file is not a Parquet file.
+            throw new StatusException(BAD_REQUEST, "validation.parquet.invalid", "/body/file");
+        }
+    }
+
+    private void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled file {}", spool, e);
+        }
+    }
+}
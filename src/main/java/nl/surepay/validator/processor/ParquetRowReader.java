@@ -0,0 +1,340 @@
+package nl.surepay.validator.processor;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.util.Cents;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Reads the rows of a Parquet statement in batches. Only the 6 columns of a statement are read, and every column of a
+ * batch is decoded on its own into an array before the rows are put together, so a value is never boxed and only the
+ * account number and description become strings.
+ * <p>
+ * The columns have the names of the json fields. The reference is an integer, the account number and description are
+ * strings, and a balance is a decimal of any physical type or a string like in a csv file, see
+ * {@link Cents#parse(String)}. A null value is a missing value.
+ */
+@Slf4j
+class ParquetRowReader implements Iterator<List<RowResult>> {
+    private static final String[] COLUMNS = {
+            "reference",
+            "accountNumber",
+            "description",
+            "startBalance",
+            "mutation",
+            "endBalance"
+    };
+    // Ignores the values, since they are read from the column readers instead of being pushed to a record.
+    private static final GroupConverter IGNORED = new GroupConverter() {
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return new PrimitiveConverter() {
+            };
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    private final ParquetFileReader fileReader;
+    private final MessageType projection;
+    private final String createdBy;
+    private final int batchSize;
+    private final LongConsumer bytesRead;
+    private final ColumnReader[] columnReaders = new ColumnReader[COLUMNS.length];
+    // Index of the next row group in the footer.
+    private int rowGroupIndex;
+    // Rows left in the current row group.
+    private long remaining;
+    private long lineNumber;
+
+    // The columns of the current batch, with the first invalid and the first missing value of every row.
+    private final long[] references;
+    private final String[] accountNumbers;
+    private final String[] descriptions;
+    private final long[][] balances;
+    private final String[] errors;
+    private final String[] missing;
+
+    /**
+     * @param bytesRead called with the compressed size of every row group that is read.
+     */
+    ParquetRowReader(ParquetFileReader fileReader, int batchSize, LongConsumer bytesRead) {
+        var metaData = fileReader.getFooter().getFileMetaData();
+
+        this.fileReader = fileReader;
+        this.projection = project(metaData.getSchema());
+        this.createdBy = metaData.getCreatedBy();
+        this.batchSize = batchSize;
+        this.bytesRead = bytesRead;
+        this.references = new long[batchSize];
+        this.accountNumbers = new String[batchSize];
+        this.descriptions = new String[batchSize];
+        this.balances = new long[3][batchSize];
+        this.errors = new String[batchSize];
+        this.missing = new String[batchSize];
+
+        fileReader.setRequestedSchema(projection);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining > 0) {
+            return true;
+        }
+
+        try {
+            var rowGroup = readNextRowGroup();
+
+            // Skip empty row groups.
+            while (rowGroup != null && rowGroup.getRowCount() == 0) {
+                rowGroup = readNextRowGroup();
+            }
+
+            if (rowGroup == null) {
+                return false;
+            }
+
+            var readStore = new ColumnReadStoreImpl(rowGroup, IGNORED, projection, createdBy);
+
+            for (var i = 0; i < COLUMNS.length; i++) {
+                columnReaders[i] = readStore.getColumnReader(descriptor(i));
+            }
+
+            remaining = rowGroup.getRowCount();
+
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<RowResult> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var count = (int) Math.min(remaining, batchSize);
+
+        Arrays.fill(errors, 0, count, null);
+        Arrays.fill(missing, 0, count, null);
+
+        readLongs(0, "Reference", references, count);
+        readStrings(1, "Account number", accountNumbers, count);
+        readStrings(2, "Description", descriptions, count);
+        readCents(3, "Start balance", balances[0], count);
+        readCents(4, "Mutation", balances[1], count);
+        readCents(5, "End balance", balances[2], count);
+
+        var results = new ArrayList<RowResult>(count);
+
+        for (var i = 0; i < count; i++) {
+            lineNumber++;
+
+            // An invalid value is reported before a missing one, like in a json object.
+            var error = errors[i] != null ? errors[i] : missing[i];
+
+            if (error != null) {
+                results.add(new RowResult.Invalid(error, lineNumber));
+                continue;
+            }
+
+            var value = new RowValue(
+                    references[i],
+                    accountNumbers[i],
+                    descriptions[i],
+                    balances[0][i],
+                    balances[1][i],
+                    balances[2][i]);
+
+            results.add(new RowResult.Valid(value));
+        }
+
+        remaining -= count;
+
+        return results;
+    }
+
+    void close() {
+        try {
+            fileReader.close();
+        } catch (IOException e) {
+            log.warn("Failed to close ParquetFileReader", e);
+        }
+    }
+
+    private PageReadStore readNextRowGroup() throws IOException {
+        var rowGroup = fileReader.readNextRowGroup();
+
+        if (rowGroup != null) {
+            bytesRead.accept(fileReader.getRowGroups().get(rowGroupIndex++).getCompressedSize());
+        }
+
+        return rowGroup;
+    }
+
+    /**
+     * @return the schema of only the columns of a statement.
+     * @throws StatusException if a column is missing or does not have a type that can be read.
+     */
+    private static MessageType project(MessageType schema) {
+        var fields = new ArrayList<Type>(COLUMNS.length);
+
+        for (var i = 0; i < COLUMNS.length; i++) {
+            var name = COLUMNS[i];
+
+            if (!schema.containsField(name) || !isSupported(i, schema.getType(name))) {
+                throw new StatusException(BAD_REQUEST, "validation.parquet.column", new Object[]{name}, "/body/file");
+            }
+
+            fields.add(schema.getType(name));
+        }
+
+        return new MessageType(schema.getName(), fields);
+    }
+
+    private static boolean isSupported(int column, Type type) {
+        if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) {
+            return false;
+        }
+
+        var primitiveType = type.asPrimitiveType();
+        var typeName = primitiveType.getPrimitiveTypeName();
+        var annotation = primitiveType.getLogicalTypeAnnotation();
+
+        return switch (column) {
+            case 0 -> (typeName == INT32 || typeName == INT64)
+                    && (annotation == null || annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation);
+            case 1, 2 -> typeName == BINARY;
+            default -> annotation instanceof DecimalLogicalTypeAnnotation
+                    || typeName == BINARY && annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation;
+        };
+    }
+
+    private ColumnDescriptor descriptor(int column) {
+        return projection.getColumnDescription(new String[]{COLUMNS[column]});
+    }
+
+    private void readLongs(int column, String name, long[] values, int count) {
+        var reader = columnReaders[column];
+        var maxDefinitionLevel = reader.getDescriptor().getMaxDefinitionLevel();
+        var int32 = reader.getDescriptor().getPrimitiveType().getPrimitiveTypeName() == INT32;
+
+        for (var i = 0; i < count; i++) {
+            values[i] = 0;
+
+            if (reader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                values[i] = int32 ? reader.getInteger() : reader.getLong();
+            }
+
+            // Zero is not a valid reference, like in the other formats.
+            if (values[i] == 0) {
+                missing(i, name);
+            }
+
+            reader.consume();
+        }
+    }
+
+    private void readStrings(int column, String name, String[] values, int count) {
+        var reader = columnReaders[column];
+        var maxDefinitionLevel = reader.getDescriptor().getMaxDefinitionLevel();
+
+        for (var i = 0; i < count; i++) {
+            values[i] = null;
+
+            if (reader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                values[i] = reader.getBinary().toStringUsingUTF8();
+            } else {
+                missing(i, name);
+            }
+
+            reader.consume();
+        }
+    }
+
+    private void readCents(int column, String name, long[] values, int count) {
+        var reader = columnReaders[column];
+        var type = reader.getDescriptor().getPrimitiveType();
+        var maxDefinitionLevel = reader.getDescriptor().getMaxDefinitionLevel();
+        // A balance without a decimal type is a string.
+        var scale = type.getLogicalTypeAnnotation() instanceof DecimalLogicalTypeAnnotation decimal
+                ? decimal.getScale()
+                : -1;
+
+        for (var i = 0; i < count; i++) {
+            values[i] = 0;
+
+            if (reader.getCurrentDefinitionLevel() != maxDefinitionLevel) {
+                missing(i, name);
+                reader.consume();
+                continue;
+            }
+
+            try {
+                values[i] = switch (type.getPrimitiveTypeName()) {
+                    case INT32 -> Cents.fromUnscaled(reader.getInteger(), scale);
+                    case INT64 -> Cents.fromUnscaled(reader.getLong(), scale);
+                    default -> scale < 0
+                            ? Cents.parse(reader.getBinary().toStringUsingUTF8())
+                            : Cents.fromUnscaled(new BigDecimal(new BigInteger(reader.getBinary().getBytes()), scale));
+                };
+            } catch (NumberFormatException e) {
+                invalid(i, "%s %s".formatted(name, e.getMessage()));
+            }
+
+            reader.consume();
+        }
+    }
+
+    /**
+     * Keep the first invalid value of the {@param row}. The columns are read in the order of the fields of the other
+     * formats, so it is the same error.
+     */
+    private void invalid(int row, String error) {
+        if (errors[row] == null) {
+            errors[row] = error;
+        }
+    }
+
+    private void missing(int row, String name) {
+        if (missing[row] == null) {
+            missing[row] = "%s is missing".formatted(name);
+        }
+    }
+}
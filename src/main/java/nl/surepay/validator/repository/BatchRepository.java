@@ -1,7 +1,19 @@
 package nl.surepay.validator.repository;
 
 import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.model.Continuity;
 import org.springframework.data.repository.CrudRepository;
 
-public interface BatchRepository extends CrudRepository<Batch, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface BatchRepository extends CrudRepository<Batch, UUID> {
+    Optional<Batch> findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(
+            String contentHash,
+            Continuity continuity,
+            Batch.Status status);
+
+    List<Batch> findAllByStatusInAndUploadLengthIsNotNull(Collection<Batch.Status> statuses);
 }
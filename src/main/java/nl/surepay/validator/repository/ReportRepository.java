@@ -0,0 +1,115 @@
+package nl.surepay.validator.repository;
+
+import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.model.Report;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class ReportRepository {
+    private static final String INSERT = """
+            insert into report (batch_id, line, reference, description, error_message)
+            values (?, ?, ?, ?, ?)
+            on conflict (batch_id, line) do nothing
+            """;
+    private static final String COPY = """
+            insert into report (batch_id, line, reference, description, error_message)
+            select ?, line, reference, description, error_message
+            from report
+            where batch_id = ?
+            on conflict (batch_id, line) do nothing
+            """;
+    private static final String SELECT_BY_BATCH_ID = """
+            select line, reference, description, error_message
+            from report
+            where batch_id = ? and line >= ?
+            order by line
+            limit ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Save the {@param reports} of the batch in a single JDBC batch. Lines that are already saved are skipped, so a
+     * resumed batch can write the reports of a chunk again.
+     *
+     * @param batchId   the ID of the batch the reports belong to.
+     * @param firstLine the line of the first report. The lines keep the order the reports were written in.
+     * @param reports   the reports to save.
+     */
+    public void insertAll(UUID batchId, long firstLine, List<Report> reports) {
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                var report = reports.get(i);
+
+                ps.setObject(1, batchId);
+                ps.setLong(2, firstLine + i);
+
+                if (report.reference() == null) {
+                    ps.setNull(3, Types.BIGINT);
+                } else {
+                    ps.setLong(3, report.reference());
+                }
+
+                ps.setString(4, report.description());
+                ps.setString(5, report.errorMessage());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return reports.size();
+            }
+        });
+    }
+
+    /**
+     * Copy the reports of the batch {@param fromBatchId} to the batch {@param toBatchId}, without a round trip per
+     * report.
+     */
+    public void copyAll(UUID fromBatchId, UUID toBatchId) {
+        jdbcTemplate.update(COPY, toBatchId, fromBatchId);
+    }
+
+    /**
+     * Return a page of the reports of the batch, starting at {@param fromLine}. The next page starts right after the
+     * {@link Page#lastLine()} of this one, so a gap in the lines does not make a page skip or repeat a report. Every page
+     * is a range scan of the primary key, however far into the report it is.
+     *
+     * @param batchId  the ID of the batch the reports belong to.
+     * @param fromLine the line of the first report of the page.
+     * @param limit    the maximum number of reports of the page.
+     */
+    public Page findAllByBatchId(UUID batchId, long fromLine, int limit) {
+        return jdbcTemplate.query(SELECT_BY_BATCH_ID, rs -> {
+            var reports = new ArrayList<Report>();
+            var lastLine = fromLine - 1;
+
+            while (rs.next()) {
+                reports.add(new Report(
+                        rs.getObject("reference", Long.class),
+                        rs.getString("description"),
+                        rs.getString("error_message")));
+                lastLine = rs.getLong("line");
+            }
+
+            return new Page(reports, lastLine);
+        }, batchId, fromLine, limit);
+    }
+
+    /**
+     * @param reports  the reports of the page, in the order of their lines.
+     * @param lastLine the line of the last report, or the line before the first one when the page is empty.
+     */
+    public record Page(List<Report> reports, long lastLine) {
+    }
+}
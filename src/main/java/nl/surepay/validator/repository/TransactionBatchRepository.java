@@ -0,0 +1,60 @@
+package nl.surepay.validator.repository;
+
+import nl.surepay.validator.entity.Transaction;
+import nl.surepay.validator.model.AccountReference;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ObjLongConsumer;
+
+public interface TransactionBatchRepository {
+    /**
+     * Insert all {@param transactions} using multi-row insert statements instead of one round trip per row. A
+     * transaction whose reference already exists in its batch is skipped instead of failing the whole statement.
+     *
+     * @param transactions the transactions to insert.
+     * @return flags in the same order as {@param transactions}. A flag is false when the reference is a duplicate.
+     */
+    boolean[] insertAll(List<Transaction> transactions);
+
+    /**
+     * Stream all {@param transactions} into a temporary staging table with PostgreSQL COPY, then merge the staging
+     * table into the transaction table with a single statement. This has the same outcome as
+     * {@link #insertAll(List)} but is a lot cheaper for large amounts of rows.
+     *
+     * @param transactions the transactions to copy.
+     * @return flags in the same order as {@param transactions}. A flag is false when the reference is a duplicate.
+     */
+    boolean[] copyAll(List<Transaction> transactions);
+
+    /**
+     * Find which of the {@param transactions} are saved in their batch with the same values, in a single query.
+     *
+     * @param transactions the transactions of a single batch.
+     * @return flags in the same order as {@param transactions}. A flag is false when the batch has no transaction
+     * with the reference, or the transaction has other values.
+     */
+    boolean[] findAllSaved(List<Transaction> transactions);
+
+    /**
+     * Pass the account number and the reference of every transaction to the {@param consumer}. The rows are streamed
+     * from the database instead of loaded at once.
+     */
+    void forEachAccountReference(ObjLongConsumer<String> consumer);
+
+    /**
+     * Find which of the {@param accountReferences} are used by a transaction of another batch than {@param batchId},
+     * in a single query.
+     *
+     * @return the account references that are used by another batch.
+     */
+    Set<AccountReference> findAllUsedByOtherBatches(UUID batchId, List<AccountReference> accountReferences);
+
+    /**
+     * Pass the end balance, in cents, of the last saved transaction of each of the {@param accountNumbers} in another
+     * batch than {@param batchId} to the {@param consumer}, in a single query. Accounts without a transaction are
+     * skipped.
+     */
+    void forEachLastEndBalance(UUID batchId, List<String> accountNumbers, ObjLongConsumer<String> consumer);
+}
@@ -0,0 +1,320 @@
+package nl.surepay.validator.repository;
+
+import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.entity.Transaction;
+import nl.surepay.validator.model.AccountReference;
+import nl.surepay.validator.util.LongHashSet;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ObjLongConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@RequiredArgsConstructor
+public class TransactionBatchRepositoryImpl implements TransactionBatchRepository {
+    private static final String INSERT = """
+            insert into "transaction" (batch_id, reference, account_number, description, start_balance, mutation, end_balance)
+            values %s
+            on conflict (batch_id, reference) do nothing
+            returning reference
+            """;
+    private static final String VALUES = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 7;
+    // PostgreSQL does not accept more than 65535 bind parameters in a single statement.
+    private static final int MAX_ROWS = 65535 / COLUMNS;
+    // The staging table lives as long as the pooled connection and is emptied on every commit. The columns are
+    // loosely typed so invalid values fail during the merge instead of in the middle of the COPY stream.
+    private static final String CREATE_STAGING = """
+            create temporary table if not exists transaction_staging (
+                line integer not null,
+                batch_id uuid not null,
+                reference bigint not null,
+                account_number text not null,
+                description text not null,
+                start_balance numeric not null,
+                mutation numeric not null,
+                end_balance numeric not null
+            ) on commit delete rows
+            """;
+    private static final String COPY = """
+            copy transaction_staging (line, batch_id, reference, account_number, description, start_balance, mutation, end_balance)
+            from stdin
+            """;
+    // Only the first line of each reference is inserted. Every other line of that reference, and every first line
+    // that conflicted with an existing row, is returned as a duplicate.
+    private static final String MERGE = """
+            with inserted as (
+                insert into "transaction" (batch_id, reference, account_number, description, start_balance, mutation, end_balance)
+                select batch_id, reference, account_number, description, start_balance, mutation, end_balance
+                from (
+                    select distinct on (reference) *
+                    from transaction_staging
+                    order by reference, line
+                ) first
+                -- Insert in file order, since the continuity of an account starts at the transaction with the last ID.
+                order by line
+                on conflict (batch_id, reference) do nothing
+                returning reference
+            )
+            select s.line
+            from (
+                select line, reference, row_number() over (partition by reference order by line) as occurrence
+                from transaction_staging
+            ) s
+            where s.occurrence > 1 or not exists (select 1 from inserted i where i.reference = s.reference)
+            """;
+    private static final int COPY_BUFFER_SIZE = 65536;
+    // Numeric comparison ignores the scale and bpchar comparison the blank padding, like the insert does.
+    private static final String SELECT_SAVED = """
+            select k.index
+            from unnest(?::bigint[], ?::bpchar[], ?::text[], ?::numeric[], ?::numeric[], ?::numeric[])
+                with ordinality as k(reference, account_number, description, start_balance, mutation, end_balance, index)
+            join "transaction" t on t.batch_id = ? and t.reference = k.reference
+            where t.account_number = k.account_number
+              and t.description = k.description
+              and t.start_balance = k.start_balance
+              and t.mutation = k.mutation
+              and t.end_balance = k.end_balance
+            """;
+    private static final String SELECT_ACCOUNT_REFERENCES = """
+            select account_number, reference
+            from "transaction"
+            """;
+    private static final int FETCH_SIZE = 10000;
+    // Returns the account number that was passed in, since the column is blank padded.
+    private static final String SELECT_USED_BY_OTHER_BATCHES = """
+            select distinct k.account_number, k.reference
+            from unnest(?::bpchar[], ?::bigint[]) as k(account_number, reference)
+            join "transaction" t on t.account_number = k.account_number and t.reference = k.reference
+            where t.batch_id <> ?
+            """;
+    // The last transaction of each account is a backward scan of the (account_number, id) index.
+    private static final String SELECT_LAST_END_BALANCES = """
+            select k.account_number, l.end_balance
+            from unnest(?::bpchar[]) as k(account_number)
+            cross join lateral (
+                select (t.end_balance * 100)::bigint as end_balance
+                from "transaction" t
+                where t.account_number = k.account_number and t.batch_id <> ?
+                order by t.id desc
+                limit 1
+            ) l
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public boolean[] insertAll(List<Transaction> transactions) {
+        var inserted = new boolean[transactions.size()];
+
+        for (var from = 0; from < transactions.size(); from += MAX_ROWS) {
+            var to = Math.min(from + MAX_ROWS, transactions.size());
+
+            insertRange(transactions.subList(from, to), inserted, from);
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public boolean[] copyAll(List<Transaction> transactions) {
+        // The staging table is emptied on commit, so everything has to happen in one transaction.
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<boolean[]>) connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+            }
+
+            copy(connection, transactions);
+
+            var inserted = new boolean[transactions.size()];
+
+            Arrays.fill(inserted, true);
+
+            try (var statement = connection.createStatement();
+                 var resultSet = statement.executeQuery(MERGE)) {
+                while (resultSet.next()) {
+                    inserted[resultSet.getInt(1)] = false;
+                }
+            }
+
+            return inserted;
+        }));
+    }
+
+    @Override
+    public void forEachAccountReference(ObjLongConsumer<String> consumer) {
+        // PostgreSQL only streams the rows of a statement with a fetch size inside a transaction.
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_ACCOUNT_REFERENCES);
+            statement.setFetchSize(FETCH_SIZE);
+
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getLong(2))));
+    }
+
+    @Override
+    public boolean[] findAllSaved(List<Transaction> transactions) {
+        var saved = new boolean[transactions.size()];
+
+        if (transactions.isEmpty()) {
+            return saved;
+        }
+
+        var references = new Long[transactions.size()];
+        var accountNumbers = new String[transactions.size()];
+        var descriptions = new String[transactions.size()];
+        var balances = new BigDecimal[3][transactions.size()];
+
+        for (var i = 0; i < transactions.size(); i++) {
+            var transaction = transactions.get(i);
+
+            references[i] = transaction.getReference();
+            accountNumbers[i] = transaction.getAccountNumber();
+            descriptions[i] = transaction.getDescription();
+            balances[0][i] = transaction.getStartBalance();
+            balances[1][i] = transaction.getMutation();
+            balances[2][i] = transaction.getEndBalance();
+        }
+
+        jdbcTemplate.query(SELECT_SAVED, ps -> {
+            var connection = ps.getConnection();
+
+            ps.setArray(1, connection.createArrayOf("int8", references));
+            ps.setArray(2, connection.createArrayOf("bpchar", accountNumbers));
+            ps.setArray(3, connection.createArrayOf("text", descriptions));
+            ps.setArray(4, connection.createArrayOf("numeric", balances[0]));
+            ps.setArray(5, connection.createArrayOf("numeric", balances[1]));
+            ps.setArray(6, connection.createArrayOf("numeric", balances[2]));
+            ps.setObject(7, transactions.getFirst().getBatchId());
+        }, (RowCallbackHandler) rs -> saved[rs.getInt(1) - 1] = true);
+
+        return saved;
+    }
+
+    @Override
+    public Set<AccountReference> findAllUsedByOtherBatches(UUID batchId, List<AccountReference> accountReferences) {
+        if (accountReferences.isEmpty()) {
+            return Set.of();
+        }
+
+        var accountNumbers = new String[accountReferences.size()];
+        var references = new Long[accountReferences.size()];
+
+        for (var i = 0; i < accountReferences.size(); i++) {
+            accountNumbers[i] = accountReferences.get(i).accountNumber();
+            references[i] = accountReferences.get(i).reference();
+        }
+
+        var used = jdbcTemplate.query(SELECT_USED_BY_OTHER_BATCHES, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bpchar", accountNumbers));
+            ps.setArray(2, ps.getConnection().createArrayOf("int8", references));
+            ps.setObject(3, batchId);
+        }, (rs, rowNum) -> new AccountReference(rs.getString(1), rs.getLong(2)));
+
+        return new HashSet<>(used);
+    }
+
+    @Override
+    public void forEachLastEndBalance(UUID batchId, List<String> accountNumbers, ObjLongConsumer<String> consumer) {
+        if (accountNumbers.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.query(SELECT_LAST_END_BALANCES, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bpchar", accountNumbers.toArray()));
+            ps.setObject(2, batchId);
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1), rs.getLong(2)));
+    }
+
+    private void insertRange(List<Transaction> transactions, boolean[] inserted, int offset) {
+        var sql = INSERT.formatted(String.join(", ", Collections.nCopies(transactions.size(), VALUES)));
+        var references = new LongHashSet(transactions.size());
+
+        jdbcTemplate.query(sql, ps -> {
+            var index = 0;
+
+            for (var transaction : transactions) {
+                ps.setObject(++index, transaction.getBatchId());
+                ps.setLong(++index, transaction.getReference());
+                ps.setString(++index, transaction.getAccountNumber());
+                ps.setString(++index, transaction.getDescription());
+                ps.setBigDecimal(++index, transaction.getStartBalance());
+                ps.setBigDecimal(++index, transaction.getMutation());
+                ps.setBigDecimal(++index, transaction.getEndBalance());
+            }
+        }, rs -> {
+            references.add(rs.getLong(1));
+        });
+
+        // Only the first occurrence of a reference can be returned, so every other occurrence is a duplicate.
+        for (var i = 0; i < transactions.size(); i++) {
+            inserted[offset + i] = references.remove(transactions.get(i).getReference());
+        }
+    }
+
+    private void copy(Connection connection, List<Transaction> transactions) throws SQLException {
+        var pgConnection = connection.unwrap(PGConnection.class);
+
+        try (var outputStream = new PGCopyOutputStream(pgConnection, COPY, COPY_BUFFER_SIZE);
+             var writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), COPY_BUFFER_SIZE)) {
+            for (var line = 0; line < transactions.size(); line++) {
+                var transaction = transactions.get(line);
+
+                writer.write(Integer.toString(line));
+                writer.write('\t');
+                writer.write(transaction.getBatchId().toString());
+                writer.write('\t');
+                writer.write(Long.toString(transaction.getReference()));
+                writer.write('\t');
+                writeText(writer, transaction.getAccountNumber());
+                writer.write('\t');
+                writeText(writer, transaction.getDescription());
+                writer.write('\t');
+                writer.write(transaction.getStartBalance().toPlainString());
+                writer.write('\t');
+                writer.write(transaction.getMutation().toPlainString());
+                writer.write('\t');
+                writer.write(transaction.getEndBalance().toPlainString());
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy the transactions to the staging table", e);
+        }
+    }
+
+    /**
+     * Write the {@param value} with the escapes of the COPY text format.
+     */
+    private static void writeText(Writer writer, String value) throws IOException {
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+
+            switch (c) {
+                case '\\' -> writer.write("\\\\");
+                case '\t' -> writer.write("\\t");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                default -> writer.write(c);
+            }
+        }
+    }
+}
@@ -3,5 +3,5 @@ package nl.surepay.validator.repository;
 import nl.surepay.validator.entity.Transaction;
 import org.springframework.data.repository.CrudRepository;
 
-public interface TransactionRepository extends CrudRepository<Transaction, Long> {
+public interface TransactionRepository extends CrudRepository<Transaction, Long>, TransactionBatchRepository {
 }
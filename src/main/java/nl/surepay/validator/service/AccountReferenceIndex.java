@@ -0,0 +1,79 @@
+package nl.surepay.validator.service;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.model.AccountReference;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.util.BloomFilter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory index of the account references of all transactions, to find references that are reused by another batch
+ * of the same account without a query per row. The index is a {@link BloomFilter}, so it only tells which references
+ * were probably used before. Those are checked against the database.
+ * <p>
+ * The filter is loaded from the transaction table in the background once the application is ready. Until then, every
+ * reference is a candidate.
+ */
+@Component
+@Slf4j
+public class AccountReferenceIndex {
+    private final TransactionRepository transactionRepository;
+    private final BloomFilter filter;
+    private volatile boolean loaded;
+
+    public AccountReferenceIndex(TransactionRepository transactionRepository, UploadProperties uploadProperties) {
+        var crossBatch = uploadProperties.crossBatch();
+
+        this.transactionRepository = transactionRepository;
+        this.filter = new BloomFilter(crossBatch.expectedReferences(), crossBatch.falsePositiveRate());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread.ofVirtual().name("account-reference-index").start(() -> {
+            try {
+                transactionRepository.forEachAccountReference((accountNumber, reference) ->
+                        filter.put(AccountReference.hash(accountNumber, reference)));
+
+                loaded = true;
+
+                log.info("Loaded the account references of all transactions");
+            } catch (RuntimeException e) {
+                log.error("Failed to load the account references, every reference is checked in the database", e);
+            }
+        });
+    }
+
+    /**
+     * Add the account references of the saved {@param values} to the index.
+     *
+     * @param values the values of the batch.
+     * @param saved  whether the value at the same index was saved.
+     * @return the account references that were probably used before, which are worth checking in the database.
+     */
+    public List<AccountReference> addAll(List<RowValue> values, boolean[] saved) {
+        var candidates = new ArrayList<AccountReference>();
+
+        for (var i = 0; i < values.size(); i++) {
+            if (!saved[i]) {
+                continue;
+            }
+
+            var value = values.get(i);
+            var added = filter.put(AccountReference.hash(value.accountNumber(), value.reference()));
+
+            if (!added || !loaded) {
+                candidates.add(new AccountReference(value.accountNumber(), value.reference()));
+            }
+        }
+
+        return candidates;
+    }
+}
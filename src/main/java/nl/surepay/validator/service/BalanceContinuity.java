@@ -0,0 +1,107 @@
+package nl.surepay.validator.service;
+
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.util.StringLongHashMap;
+import nl.surepay.validator.util.Throttle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Checks that the start balance of a row is the end balance of the previous row of the same account, in a single pass
+ * over the rows of an upload. Only the last end balance of each account is kept, so missing or reordered statements
+ * are found without keeping the rows.
+ */
+class BalanceContinuity {
+    // Marks an account that was seen, but has no previous balance to continue from. It is outside the range of
+    // Cents, so it can not be a balance.
+    private static final long NO_BALANCE = Long.MIN_VALUE;
+
+    private final Continuity continuity;
+    private final UUID batchId;
+    private final TransactionRepository transactionRepository;
+    private final Throttle databaseThrottle;
+    private final StringLongHashMap balances = new StringLongHashMap();
+
+    BalanceContinuity(
+            Continuity continuity,
+            UUID batchId,
+            TransactionRepository transactionRepository,
+            Throttle databaseThrottle
+    ) {
+        this.continuity = continuity;
+        this.batchId = batchId;
+        this.transactionRepository = transactionRepository;
+        this.databaseThrottle = databaseThrottle;
+    }
+
+    /**
+     * Check the saved {@param values} in order and remember their end balances. With {@link Continuity#ACCOUNT}, the
+     * accounts that were not seen before are first seeded from their last saved transaction in a single query.
+     *
+     * @param values the values of a chunk, in the order they were read.
+     * @param saved  whether the value at the same index was saved. Values that were not saved are skipped.
+     * @return whether the start balance of the value at the same index breaks the continuity of its account.
+     */
+    boolean[] check(List<RowValue> values, boolean[] saved) {
+        var broken = new boolean[values.size()];
+
+        if (continuity == Continuity.NONE) {
+            return broken;
+        }
+
+        if (continuity == Continuity.ACCOUNT) {
+            seed(values, saved);
+        }
+
+        for (var i = 0; i < values.size(); i++) {
+            if (!saved[i]) {
+                continue;
+            }
+
+            var value = values.get(i);
+            var previous = balances.get(value.accountNumber(), NO_BALANCE);
+
+            broken[i] = previous != NO_BALANCE && previous != value.startBalance();
+
+            balances.put(value.accountNumber(), value.endBalance());
+        }
+
+        return broken;
+    }
+
+    /**
+     * Remember the end balance of a value that was saved before the batch was resumed.
+     */
+    void restore(RowValue value) {
+        if (continuity != Continuity.NONE) {
+            balances.put(value.accountNumber(), value.endBalance());
+        }
+    }
+
+    private void seed(List<RowValue> values, boolean[] saved) {
+        var accountNumbers = new ArrayList<String>();
+
+        for (var i = 0; i < values.size(); i++) {
+            var accountNumber = values.get(i).accountNumber();
+
+            if (saved[i] && !balances.containsKey(accountNumber)) {
+                balances.put(accountNumber, NO_BALANCE);
+                accountNumbers.add(accountNumber);
+            }
+        }
+
+        if (accountNumbers.isEmpty()) {
+            return;
+        }
+
+        databaseThrottle.call(() -> {
+            transactionRepository.forEachLastEndBalance(batchId, accountNumbers, balances::put);
+
+            return null;
+        });
+    }
+}
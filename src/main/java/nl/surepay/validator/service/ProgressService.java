@@ -0,0 +1,69 @@
+package nl.surepay.validator.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.model.Progress;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressService {
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
+    private final UploadMetrics uploadMetrics;
+    private final UploadPipeline uploadPipeline;
+
+    /**
+     * @return the live progress of the batch if it is running on this instance, otherwise its progress as of the last
+     * checkpoint.
+     */
+    public Progress getProgress(UUID id) {
+        return uploadMetrics.progress(id).orElseGet(() -> Progress.from(uploadPipeline.getBatch(id)));
+    }
+
+    /**
+     * Send the progress of the batch every {@link #PROGRESS_INTERVAL} until the batch is completed or failed. The
+     * events are sent from a virtual thread, so a client that follows an upload does not hold a request thread.
+     */
+    public SseEmitter streamProgress(UUID id) {
+        var first = getProgress(id);
+        var emitter = new SseEmitter(0L);
+
+        Thread.ofVirtual().name("progress-" + id).start(() -> {
+            try {
+                var progress = first;
+
+                while (true) {
+                    emitter.send(SseEmitter.event().name("progress").data(progress));
+
+                    if (progress.isDone()) {
+                        break;
+                    }
+
+                    Thread.sleep(PROGRESS_INTERVAL);
+
+                    progress = getProgress(id);
+                }
+
+                emitter.complete();
+            } catch (IOException e) {
+                // The client went away.
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.warn("Failed to send the progress of batch {}", id, e);
+                emitter.completeWithError(e);
+            }
+        });
+
+        return emitter;
+    }
+}
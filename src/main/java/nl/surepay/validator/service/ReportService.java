@@ -0,0 +1,82 @@
+package nl.surepay.validator.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.processor.FileProcessor;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.util.Throttle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+    private final FileProcessorFactory fileProcessorFactory;
+    private final ReportRepository reportRepository;
+    private final UploadProperties uploadProperties;
+    private final Throttle databaseThrottle;
+    private final UploadPipeline uploadPipeline;
+
+    /**
+     * Write the stored report of the batch to the {@param response}.
+     *
+     * @param id       the ID of the batch.
+     * @param format   {@code csv}, {@code json} or {@code parquet}. When null, the report has the format of the uploaded file.
+     * @param request  the request, which decides the encoding of the report.
+     * @param response where the report is written to.
+     */
+    public void report(UUID id, String format, HttpServletRequest request, HttpServletResponse response) {
+        var batch = uploadPipeline.getBatch(id);
+
+        if (batch.getStatus() != Batch.Status.COMPLETED) {
+            throw new StatusException(CONFLICT, "error.batch.notCompleted", new Object[]{id}, "/path/id");
+        }
+
+        var processor = format == null
+                ? fileProcessorFactory.getProcessorByExtension(batch.getFileType())
+                : fileProcessorFactory.getProcessorByFormat(format);
+
+        writeReport(id, processor, request, response);
+    }
+
+    /**
+     * Write the stored report of the batch a page of {@code upload.batch-size} lines at a time, so only one page is in
+     * memory and no database connection is held while the client reads.
+     */
+    void writeReport(
+            UUID id,
+            FileProcessor processor,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        var pageSize = uploadProperties.batchSize();
+
+        try (var writer = processor.createWriter(id, request, response)) {
+            var line = 0L;
+            ReportRepository.Page page;
+
+            do {
+                var from = line;
+
+                page = databaseThrottle.call(() -> reportRepository.findAllByBatchId(id, from, pageSize));
+
+                for (var report : page.reports()) {
+                    writer.write(report);
+                }
+
+                line = page.lastLine() + 1;
+            } while (page.reports().size() == pageSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package nl.surepay.validator.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.model.ContentRange;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.util.KeyedLocks;
+import nl.surepay.validator.util.Throttle;
+import nl.surepay.validator.writer.BatchReportWriter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Receives an upload in chunks that are kept in the {@link UploadStorage}, and processes the stored content with
+ * checkpoints, so a batch that failed or was interrupted is resumed after the rows it already saved.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+    private static final String CONTENT_RANGE_POINTER = "/header/Content-Range";
+
+    private final BatchRepository batchRepository;
+    private final FileProcessorFactory fileProcessorFactory;
+    private final ReportRepository reportRepository;
+    private final UploadProperties uploadProperties;
+    private final TaskExecutor uploadExecutor;
+    private final Throttle databaseThrottle;
+    private final UploadStorage uploadStorage;
+    private final UploadPipeline uploadPipeline;
+    // Resumable batches that are being processed by this instance.
+    private final Set<UUID> processing = ConcurrentHashMap.newKeySet();
+    // Chunks of the same resumable batch are stored one at a time.
+    private final KeyedLocks<UUID> chunkLocks = new KeyedLocks<>();
+
+    /**
+     * Start a resumable upload of {@param length} bytes. The content is sent in chunks with
+     * {@link #uploadChunk(UUID, String, InputStream)} and processed in the background once all bytes are stored.
+     *
+     * @param fileName   the name of the csv/json file, which decides the processor.
+     * @param length     the size of the file in bytes.
+     * @param continuity how the balances are checked against the rows before them. When null, they are not.
+     * @return the batch that receives the content.
+     */
+    public Batch createResumable(String fileName, long length, Continuity continuity) {
+        if (length <= 0) {
+            throw new StatusException(BAD_REQUEST, "validation.file.empty", "/query/length");
+        }
+
+        var processor = fileProcessorFactory.getProcessor(fileName);
+        var batch = UploadPipeline.newBatch(processor, Batch.Status.UPLOADING, null, continuity);
+        batch.setFileName(fileName);
+        batch.setUploadLength(length);
+
+        return uploadPipeline.save(batch);
+    }
+
+    /**
+     * Store a chunk of a resumable upload. A chunk has to start where the stored content ends, which is the
+     * {@code receivedBytes} of the batch, so a client that lost a request gets the batch and sends the rest from
+     * there. The batch is queued once the last byte is stored.
+     * <p>
+     * Requests for the same batch, like a retry while the first request is still running, are handled one at a time,
+     * so the second one sees the received bytes of the first.
+     *
+     * @param id           the ID of the batch.
+     * @param contentRange the {@code Content-Range} of the chunk.
+     * @param inputStream  the content of the chunk.
+     * @return the batch with the new number of received bytes.
+     */
+    public Batch uploadChunk(UUID id, String contentRange, InputStream inputStream) {
+        return chunkLocks.call(id, () -> storeChunk(id, contentRange, inputStream));
+    }
+
+    private Batch storeChunk(UUID id, String contentRange, InputStream inputStream) {
+        var batch = uploadPipeline.findBatch(id);
+
+        if (batch.getStatus() != Batch.Status.UPLOADING) {
+            throw new StatusException(CONFLICT, "error.upload.notUploading", new Object[]{id}, "/path/id");
+        }
+
+        var range = ContentRange.parse(contentRange)
+                .filter(value -> value.length() == batch.getUploadLength())
+                .orElseThrow(() -> new StatusException(
+                        BAD_REQUEST,
+                        "validation.contentRange.invalid",
+                        CONTENT_RANGE_POINTER));
+
+        if (range.start() != batch.getReceivedBytes()) {
+            var args = new Object[]{batch.getReceivedBytes()};
+
+            throw new StatusException(CONFLICT, "error.upload.offset", args, CONTENT_RANGE_POINTER);
+        }
+
+        long size;
+
+        try {
+            size = uploadStorage.write(id, range.start(), range.size(), inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // The storage already stopped at the end of the range, so this only confirms the chunk ended there.
+        if (size != range.end() + 1) {
+            throw new StatusException(BAD_REQUEST, "validation.contentRange.size", CONTENT_RANGE_POINTER);
+        }
+
+        batch.setReceivedBytes(size);
+
+        if (size < batch.getUploadLength()) {
+            uploadPipeline.save(batch);
+
+            return batch;
+        }
+
+        batch.setStatus(Batch.Status.QUEUED);
+
+        uploadPipeline.save(batch);
+
+        queueStored(batch);
+
+        return batch;
+    }
+
+    /**
+     * Queue a resumable upload again after it failed, or after the application stopped while processing it. The
+     * rows up to the last checkpoint of the batch are not saved again.
+     *
+     * @param id the ID of the batch.
+     * @return the queued batch.
+     */
+    public Batch resume(UUID id) {
+        var batch = uploadPipeline.findBatch(id);
+        var resumable = batch.getUploadLength() != null
+                && batch.getReceivedBytes() == batch.getUploadLength()
+                && batch.getStatus() != Batch.Status.COMPLETED
+                && !processing.contains(id)
+                && uploadStorage.exists(id);
+
+        if (!resumable) {
+            throw new StatusException(CONFLICT, "error.upload.notResumable", new Object[]{id}, "/path/id");
+        }
+
+        batch.setStatus(Batch.Status.QUEUED);
+
+        uploadPipeline.save(batch);
+
+        queueStored(batch);
+
+        return batch;
+    }
+
+    /**
+     * Queue the resumable uploads that were queued or running when the application stopped. Only the batches whose
+     * content is stored on this instance are picked up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        var statuses = List.of(Batch.Status.QUEUED, Batch.Status.RUNNING);
+
+        for (var batch : batchRepository.findAllByStatusInAndUploadLengthIsNotNull(statuses)) {
+            if (batch.getReceivedBytes() != batch.getUploadLength() || !uploadStorage.exists(batch.getId())) {
+                continue;
+            }
+
+            log.info("Resuming batch {} after row {}", batch.getId(), batch.getProcessedRows());
+
+            try {
+                queueStored(batch);
+            } catch (StatusException e) {
+                log.warn("Failed to resume batch {}", batch.getId(), e);
+            }
+        }
+    }
+
+    private void queueStored(Batch batch) {
+        try {
+            uploadExecutor.execute(() -> processStored(batch));
+        } catch (RejectedExecutionException e) {
+            // The content is kept, so the batch can be resumed later.
+            uploadPipeline.fail(batch);
+
+            throw new StatusException(SERVICE_UNAVAILABLE, "error.upload.busy", "/path/id");
+        }
+    }
+
+    /**
+     * Process the stored content of a resumable upload, starting after the last checkpoint of the {@param batch}. A
+     * checkpoint is saved after the transactions and the reports of every chunk are saved.
+     */
+    private void processStored(Batch batch) {
+        var id = batch.getId();
+
+        if (!processing.add(id)) {
+            return;
+        }
+
+        try {
+            var processor = fileProcessorFactory.getProcessor(batch.getFileName());
+            var mode = uploadPipeline.resolveMode(batch.getUploadLength(), null);
+            var reportWriter = new BatchReportWriter(
+                    reportRepository,
+                    databaseThrottle,
+                    id,
+                    uploadProperties.batchSize(),
+                    batch.getReportLines());
+
+            var source = new FileSystemResource(uploadStorage.path(id));
+
+            batch.setContentHash(UploadPipeline.hash(source));
+
+            var completed = uploadPipeline.findCompleted(batch.getContentHash(), batch.getContinuity());
+
+            if (completed.isPresent()) {
+                // The same content was processed before, so that batch already has the report of this one.
+                databaseThrottle.call(() -> {
+                    reportRepository.copyAll(completed.get().getId(), id);
+
+                    return null;
+                });
+
+                batch.setStatus(Batch.Status.COMPLETED);
+
+                uploadPipeline.save(batch);
+            } else {
+                batch.setStatus(Batch.Status.RUNNING);
+
+                uploadPipeline.save(batch);
+
+                uploadPipeline.process(batch, processor, mode, source, () -> reportWriter, batch.getProcessedRows(),
+                        chunk -> {
+                            reportWriter.flush();
+
+                            UploadPipeline.count(batch, chunk);
+                            batch.setReportLines(reportWriter.line());
+
+                            uploadPipeline.save(batch);
+                        });
+            }
+
+            uploadStorage.delete(id);
+        } catch (IOException e) {
+            log.warn("Failed to delete the content of batch {}", id, e);
+        } catch (RuntimeException e) {
+            log.error("Failed to process batch {}", id, e);
+        } finally {
+            processing.remove(id);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package nl.surepay.validator.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.model.Progress;
+import nl.surepay.validator.util.CountingInputStream;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters of the upload pipeline, tagged by the {@code type} of the processor, see
+ * {@link nl.surepay.validator.processor.FileProcessor#supports()}. They are exposed at {@code /actuator/prometheus}.
+ * <ul>
+ *     <li>{@code upload.active}: the uploads that are being processed and how long they have been running.</li>
+ *     <li>{@code upload.bytes}: the size of each upload. The sum is the number of bytes ingested.</li>
+ *     <li>{@code upload.rows}: the rows that were parsed, valid or not.</li>
+ *     <li>{@code upload.rows.rejected}: the rows that were reported, tagged by the {@code reason}.</li>
+ *     <li>{@code upload.stage}: the time spent per chunk in each {@code stage} of the pipeline.</li>
+ * </ul>
+ * The recorders of the uploads that are running on this instance also keep the {@link Progress} of their batch. They
+ * only add to counters that are read when the progress is requested, so following an upload costs nothing per row.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadMetrics {
+    private final MeterRegistry meterRegistry;
+    private final Map<UUID, Recorder> running = new ConcurrentHashMap<>();
+
+    enum Stage {
+        /**
+         * Reading a chunk of rows from the file.
+         */
+        PARSE,
+        /**
+         * Inserting the rows of a chunk.
+         */
+        PERSIST,
+        /**
+         * Checking the saved rows of a chunk and creating their reports.
+         */
+        VALIDATE,
+        /**
+         * Writing the reports of a chunk.
+         */
+        WRITE
+    }
+
+    enum Reason {
+        /**
+         * The row could not be parsed.
+         */
+        INVALID,
+        /**
+         * The reference was used before in the batch.
+         */
+        DUPLICATE,
+        /**
+         * The database did not accept the row.
+         */
+        DATABASE,
+        /**
+         * The ending balance is not the start balance plus the mutation.
+         */
+        BALANCE,
+        /**
+         * The start balance is not the previous end balance of the account.
+         */
+        CONTINUITY,
+        /**
+         * The reference was used in another batch of the account.
+         */
+        REUSED
+    }
+
+    /**
+     * Start recording the upload of the {@param batch} that is read by a processor of {@param type}. The upload is
+     * active until the recorder is closed. The rows that the batch processed before it was resumed are counted in its
+     * progress.
+     *
+     * @param length the size of the file, or -1 if it is not known.
+     */
+    Recorder start(Batch batch, String type, long length) {
+        var recorder = new Recorder(batch, type, length);
+
+        running.put(batch.getId(), recorder);
+
+        return recorder;
+    }
+
+    /**
+     * @return the progress of the batch with the {@param id}, or empty if it is not running on this instance.
+     */
+    Optional<Progress> progress(UUID id) {
+        return Optional.ofNullable(running.get(id)).map(Recorder::progress);
+    }
+
+    class Recorder implements AutoCloseable {
+        private final UUID id;
+        private final long length;
+        // The counts of the batch before it was resumed.
+        private final long skip;
+        private final long skipInvalid;
+        private final long skipDuplicates;
+        private final long startedAt = System.nanoTime();
+        private final Counter rows;
+        private final Map<Reason, Counter> rejected = new EnumMap<>(Reason.class);
+        private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+        private final DistributionSummary size;
+        private final LongTaskTimer.Sample active;
+        // Counted on the pipeline threads and read by the requests for the progress.
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder invalid = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+
+        private Recorder(Batch batch, String type, long length) {
+            var tag = type == null ? "unknown" : type;
+
+            this.id = batch.getId();
+            this.length = length;
+            this.skip = batch.getProcessedRows();
+            this.skipInvalid = batch.getInvalidRows();
+            this.skipDuplicates = batch.getDuplicateRows();
+
+            rows = Counter.builder("upload.rows")
+                    .description("Rows parsed from the uploaded files")
+                    .tag("type", tag)
+                    .register(meterRegistry);
+
+            for (var reason : Reason.values()) {
+                rejected.put(reason, Counter.builder("upload.rows.rejected")
+                        .description("Rows that were reported")
+                        .tag("type", tag)
+                        .tag("reason", name(reason))
+                        .register(meterRegistry));
+            }
+
+            for (var stage : Stage.values()) {
+                stages.put(stage, Timer.builder("upload.stage")
+                        .description("Time spent on a chunk of rows per stage of the pipeline")
+                        .tag("type", tag)
+                        .tag("stage", name(stage))
+                        .register(meterRegistry));
+            }
+
+            size = DistributionSummary.builder("upload.bytes")
+                    .description("Size of the uploaded files")
+                    .baseUnit("bytes")
+                    .tag("type", tag)
+                    .register(meterRegistry);
+            active = LongTaskTimer.builder("upload.active")
+                    .description("Uploads that are being processed")
+                    .tag("type", tag)
+                    .register(meterRegistry)
+                    .start();
+        }
+
+        void parsed(int count) {
+            rows.increment(count);
+            processed.add(count);
+        }
+
+        void rejected(Reason reason) {
+            rejected.get(reason).increment();
+
+            if (reason == Reason.DUPLICATE) {
+                duplicates.increment();
+            } else {
+                invalid.increment();
+            }
+        }
+
+        Timer.Sample startStage() {
+            return Timer.start(meterRegistry);
+        }
+
+        void stopStage(Stage stage, Timer.Sample sample) {
+            sample.stop(stages.get(stage));
+        }
+
+        /**
+         * Record the time of every {@link Iterator#next()} of the {@param source} as the {@param stage}.
+         */
+        <T> Iterator<T> timed(Stage stage, Iterator<T> source) {
+            var timer = stages.get(stage);
+
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return source.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return timer.record(source::next);
+                }
+            };
+        }
+
+        /**
+         * Count {@param bytes} more bytes of the file as read.
+         */
+        void read(long bytes) {
+            this.bytes.add(bytes);
+        }
+
+        /**
+         * @return the {@param inputStream}, counting the bytes that are read from it.
+         */
+        InputStream counting(InputStream inputStream) {
+            return new CountingInputStream(inputStream, this::read);
+        }
+
+        Progress progress() {
+            var seconds = (System.nanoTime() - startedAt) / 1e9;
+            var rows = processed.sum();
+            var invalidRows = skipInvalid + invalid.sum();
+            var duplicateRows = skipDuplicates + duplicates.sum();
+            var bytesRead = bytes.sum();
+            Long eta = null;
+
+            if (bytesRead > 0 && length > 0) {
+                eta = (long) (seconds * Math.max(length - bytesRead, 0) / bytesRead);
+            }
+
+            return new Progress(
+                    id,
+                    Batch.Status.RUNNING,
+                    skip + rows,
+                    skip + rows - invalidRows - duplicateRows,
+                    invalidRows,
+                    duplicateRows,
+                    bytesRead,
+                    length < 0 ? null : length,
+                    seconds > 0 ? rows / seconds : 0,
+                    eta);
+        }
+
+        @Override
+        public void close() {
+            running.remove(id, this);
+            size.record(length >= 0 ? length : bytes.sum());
+            active.stop();
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
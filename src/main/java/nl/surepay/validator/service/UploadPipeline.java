@@ -0,0 +1,590 @@
+package nl.surepay.validator.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.entity.Transaction;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.model.AccountReference;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.IngestMode;
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.processor.FileProcessor;
+import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.service.UploadMetrics.Reason;
+import nl.surepay.validator.service.UploadMetrics.Stage;
+import nl.surepay.validator.util.BackgroundIterator;
+import nl.surepay.validator.util.Cents;
+import nl.surepay.validator.util.ContentHash;
+import nl.surepay.validator.util.Iterators;
+import nl.surepay.validator.util.LongHashSet;
+import nl.surepay.validator.util.Throttle;
+import nl.surepay.validator.writer.BatchReportWriter;
+import nl.surepay.validator.writer.FileWriter;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+/**
+ * Validates and saves the rows of an upload and writes the report of each row. The upload services create the batch
+ * and decide where the content is read from and where the report is written to.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadPipeline {
+    private static final String DUPLICATE_REFERENCE = "Duplicate reference";
+    private static final String REUSED_REFERENCE = "Reference was used in another batch of the account";
+    private static final String BROKEN_CONTINUITY =
+            "Start balance did not match the previous end balance of the account";
+
+    private final BatchRepository batchRepository;
+    private final TransactionRepository transactionRepository;
+    private final ReportRepository reportRepository;
+    private final UploadProperties uploadProperties;
+    private final Throttle databaseThrottle;
+    private final AccountReferenceIndex accountReferenceIndex;
+    private final UploadMetrics uploadMetrics;
+
+    void process(
+            Batch batch,
+            FileProcessor processor,
+            IngestMode mode,
+            InputStreamSource source,
+            WriterFactory writerFactory
+    ) {
+        process(batch, processor, mode, source, writerFactory, 0, null);
+    }
+
+    /**
+     * Read the rows from the {@param source}, save the valid ones and write the report of each row to the writer that
+     * the {@param writerFactory} creates. The status of the {@param batch} is updated when done.
+     * <p>
+     * Parsing, saving and writing the report run as a pipeline so that parsing the next chunk overlaps with saving
+     * the current one. The stages are connected by bounded queues of {@code upload.pipeline-depth} chunks, so a slow
+     * stage holds back the ones before it and memory stays flat. Every stage handles the chunks one by one, which
+     * keeps the report in the same order as the rows.
+     * <p>
+     * When a batch is resumed, the first {@param skip} rows were processed before. They are only parsed to restore the
+     * references and balances of the ones that were saved. A row after them that already exists was saved after the
+     * last checkpoint and is not a duplicate.
+     *
+     * @param checkpoint called after the reports of each chunk are written, or null if the batch is not resumable.
+     */
+    void process(
+            Batch batch,
+            FileProcessor processor,
+            IngestMode mode,
+            InputStreamSource source,
+            WriterFactory writerFactory,
+            long skip,
+            Checkpoint checkpoint
+    ) {
+        var chunkSize = mode == IngestMode.COPY ? uploadProperties.copy().batchSize() : uploadProperties.batchSize();
+        var depth = uploadProperties.pipelineDepth();
+        // References seen in this upload so duplicates are known without a round trip to the database.
+        var references = new LongHashSet();
+        var continuity = new BalanceContinuity(
+                batch.getContinuity(),
+                batch.getId(),
+                transactionRepository,
+                databaseThrottle);
+        var replay = checkpoint != null;
+
+        try (var metrics = uploadMetrics.start(batch, processor.supports(), length(source));
+             var stream = read(processor, source, metrics);
+             var writer = writerFactory.create()) {
+            var rows = stream.iterator();
+
+            restore(batch.getId(), rows, skip, references, continuity);
+
+            try (var chunks = new BackgroundIterator<>(
+                    "parse-" + batch.getId(),
+                    metrics.timed(Stage.PARSE, Iterators.chunk(rows, chunkSize)),
+                    depth);
+                 var flushed = new BackgroundIterator<>(
+                         "persist-" + batch.getId(),
+                         Iterators.map(chunks, chunk ->
+                                 flush(batch.getId(), mode, chunk, references, continuity, replay, metrics)),
+                         depth)) {
+                while (flushed.hasNext()) {
+                    var chunk = flushed.next();
+                    var sample = metrics.startStage();
+
+                    for (var report : chunk.reports()) {
+                        writer.write(report);
+                    }
+
+                    metrics.stopStage(Stage.WRITE, sample);
+
+                    if (checkpoint != null) {
+                        checkpoint.commit(chunk);
+                    } else {
+                        // The counts are saved with the status of the batch.
+                        count(batch, chunk);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            fail(batch);
+
+            throw new RuntimeException(e);
+        } catch (RuntimeException | Error e) {
+            fail(batch);
+
+            throw e;
+        }
+
+        batch.setStatus(Batch.Status.COMPLETED);
+
+        save(batch);
+    }
+
+    /**
+     * Skip the first {@param skip} rows. The references of the ones that were saved are added to the
+     * {@param references} and their balances are restored in the {@param continuity}, like processing them did. The
+     * saved rows are looked up in the transactions of the batch per chunk of {@code upload.batch-size} valid rows.
+     */
+    private void restore(
+            UUID batchId,
+            Iterator<RowResult> rows,
+            long skip,
+            LongHashSet references,
+            BalanceContinuity continuity
+    ) {
+        var values = new ArrayList<RowValue>(uploadProperties.batchSize());
+
+        for (var i = 0L; i < skip && rows.hasNext(); i++) {
+            if (rows.next() instanceof RowResult.Valid valid) {
+                values.add(valid.value());
+            }
+
+            if (values.size() == uploadProperties.batchSize()) {
+                restoreSaved(batchId, values, references, continuity);
+                values.clear();
+            }
+        }
+
+        restoreSaved(batchId, values, references, continuity);
+    }
+
+    /**
+     * Restore the {@param values} that were saved. A value was saved when the batch has a transaction with the same
+     * values and no value before it had the reference. A value whose insert failed was not, even when a later value
+     * with the same reference was.
+     */
+    private void restoreSaved(
+            UUID batchId,
+            List<RowValue> values,
+            LongHashSet references,
+            BalanceContinuity continuity
+    ) {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        var transactions = values.stream()
+                .map(value -> toTransaction(batchId, value))
+                .toList();
+        var saved = databaseThrottle.call(() -> transactionRepository.findAllSaved(transactions));
+
+        for (var i = 0; i < values.size(); i++) {
+            var value = values.get(i);
+
+            if (saved[i] && references.add(value.reference())) {
+                continuity.restore(value);
+            }
+        }
+    }
+
+    Batch getBatch(UUID id) {
+        return batchRepository
+                .findById(id)
+                .orElseThrow(() -> new StatusException(NOT_FOUND, "error.batch.notFound", new Object[]{id}, "/path/id"));
+    }
+
+    /**
+     * Load the batch for the upload path. Reading the batch for its status is not throttled, so it is answered from the
+     * reserved connections while the uploads wait for a permit.
+     */
+    Batch findBatch(UUID id) {
+        return databaseThrottle.call(() -> getBatch(id));
+    }
+
+    Batch save(Batch batch) {
+        return databaseThrottle.call(() -> batchRepository.save(batch));
+    }
+
+    void fail(Batch batch) {
+        batch.setStatus(Batch.Status.FAILED);
+
+        save(batch);
+    }
+
+    /**
+     * @return the last completed batch of the content with the {@param contentHash} that was checked with the same
+     * {@param continuity}, where null is {@link Continuity#NONE}.
+     */
+    Optional<Batch> findCompleted(String contentHash, Continuity continuity) {
+        return databaseThrottle.call(() -> batchRepository
+                .findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(
+                        contentHash,
+                        continuity(continuity),
+                        Batch.Status.COMPLETED));
+    }
+
+    private static Continuity continuity(Continuity continuity) {
+        return continuity == null ? Continuity.NONE : continuity;
+    }
+
+    static Batch newBatch(FileProcessor processor, Batch.Status status, String contentHash, Continuity continuity) {
+        var batch = new Batch();
+        batch.setStatus(status);
+        batch.setContinuity(continuity(continuity));
+        batch.setFileType(processor.supports());
+        batch.setContentHash(contentHash);
+
+        return batch;
+    }
+
+    static String hash(InputStreamSource source) {
+        try (var inputStream = source.getInputStream()) {
+            return ContentHash.of(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    IngestMode resolveMode(long size, IngestMode mode) {
+        if (mode != null) {
+            return mode;
+        }
+
+        return size >= uploadProperties.copy().threshold().toBytes() ? IngestMode.COPY : IngestMode.INSERT;
+    }
+
+    FileWriter createReportWriter(UUID batchId) {
+        return new BatchReportWriter(reportRepository, databaseThrottle, batchId, uploadProperties.batchSize());
+    }
+
+    /**
+     * Add the rows of the {@param chunk} to the counts of the {@param batch}.
+     */
+    static void count(Batch batch, Flushed chunk) {
+        batch.setProcessedRows(batch.getProcessedRows() + chunk.rows());
+        batch.setInvalidRows(batch.getInvalidRows() + chunk.invalidRows());
+        batch.setDuplicateRows(batch.getDuplicateRows() + chunk.duplicateRows());
+    }
+
+    private Stream<RowResult> read(
+            FileProcessor processor,
+            InputStreamSource source,
+            UploadMetrics.Recorder metrics
+    ) throws IOException {
+        // A file on disk allows random access, which some processors use to read in parallel.
+        if (source instanceof FileSystemResource resource) {
+            return processor.read(resource.getFile().toPath(), metrics::read);
+        }
+
+        return processor.read(metrics.counting(source.getInputStream()));
+    }
+
+    /**
+     * @return the size of the {@param source}, or -1 if it is a stream of unknown length.
+     */
+    private static long length(InputStreamSource source) throws IOException {
+        return switch (source) {
+            case FileSystemResource resource -> resource.contentLength();
+            case MultipartFile file -> file.getSize();
+            default -> -1;
+        };
+    }
+
+    /**
+     * Insert the valid rows of {@param results} in one go, then return the reports of the rows in the same order as
+     * they were read.
+     */
+    private Flushed flush(
+            UUID batchId,
+            IngestMode mode,
+            List<RowResult> results,
+            LongHashSet references,
+            BalanceContinuity continuity,
+            boolean replay,
+            UploadMetrics.Recorder metrics
+    ) {
+        var values = new ArrayList<RowValue>(results.size());
+
+        metrics.parsed(results.size());
+
+        for (var result : results) {
+            if (result instanceof RowResult.Valid valid) {
+                values.add(valid.value());
+            }
+        }
+
+        var persist = metrics.startStage();
+        var errors = validateAndInsert(batchId, mode, values, references, replay);
+
+        metrics.stopStage(Stage.PERSIST, persist);
+
+        var validate = metrics.startStage();
+        var saved = new boolean[values.size()];
+
+        for (var i = 0; i < values.size(); i++) {
+            saved[i] = errors[i] == null;
+        }
+
+        var broken = continuity.check(values, saved);
+        var reused = findReused(batchId, values, saved);
+        var reports = new ArrayList<Report>();
+        var index = 0;
+
+        for (var result : results) {
+            switch (result) {
+                case RowResult.Valid valid -> {
+                    processValid(valid.value(), errors[index], broken[index], reused[index], reports, metrics);
+                    index++;
+                }
+                case RowResult.Invalid error -> processInvalid(error, reports, metrics);
+            }
+        }
+
+        metrics.stopStage(Stage.VALIDATE, validate);
+
+        // A row has at most one report.
+        var duplicates = (int) reports.stream()
+                .filter(report -> DUPLICATE_REFERENCE.equals(report.errorMessage()))
+                .count();
+
+        return new Flushed(results.size(), reports.size() - duplicates, duplicates, reports);
+    }
+
+    /**
+     * Find which of the saved {@param values} reuse a reference of another batch of the same account. Only the ones
+     * that the {@link AccountReferenceIndex} does not rule out are checked in the database, in a single query.
+     *
+     * @return whether the value at the same index reuses a reference.
+     */
+    private boolean[] findReused(UUID batchId, List<RowValue> values, boolean[] saved) {
+        var reused = new boolean[values.size()];
+
+        var candidates = accountReferenceIndex.addAll(values, saved);
+
+        if (candidates.isEmpty()) {
+            return reused;
+        }
+
+        Set<AccountReference> used;
+
+        try {
+            used = databaseThrottle.call(() -> transactionRepository.findAllUsedByOtherBatches(batchId, candidates));
+        } catch (DataAccessException e) {
+            // The rows are saved already, so only the flag is lost.
+            log.warn("Failed to find reused references of batch {}", batchId, e);
+
+            return reused;
+        }
+
+        for (var i = 0; i < values.size() && !used.isEmpty(); i++) {
+            var value = values.get(i);
+
+            reused[i] = saved[i] && used.contains(new AccountReference(value.accountNumber(), value.reference()));
+        }
+
+        return reused;
+    }
+
+    /**
+     * Check the references of {@param values} against the ones already seen in this upload and only insert the
+     * unique ones. The unique index on the table stays the backstop for anything missed here.
+     *
+     * @param replay whether the rows may have been saved before the batch was resumed.
+     * @return the error message of each value in the same order, or null if the value was inserted.
+     */
+    private String[] validateAndInsert(
+            UUID batchId,
+            IngestMode mode,
+            List<RowValue> values,
+            LongHashSet references,
+            boolean replay
+    ) {
+        var errors = new String[values.size()];
+        var unique = new ArrayList<RowValue>(values.size());
+
+        for (var i = 0; i < values.size(); i++) {
+            var value = values.get(i);
+
+            if (references.add(value.reference())) {
+                unique.add(value);
+            } else {
+                errors[i] = DUPLICATE_REFERENCE;
+            }
+        }
+
+        var insertErrors = insertAll(batchId, mode, unique);
+
+        for (int i = 0, j = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+
+            var error = insertErrors[j++];
+
+            // Every other occurrence of the reference is in the references, so the existing row is this one.
+            if (replay && DUPLICATE_REFERENCE.equals(error)) {
+                error = null;
+            }
+
+            // The row was not saved, so a later row with the same reference is not a duplicate of this one.
+            if (error != null && !error.equals(DUPLICATE_REFERENCE)) {
+                references.remove(values.get(i).reference());
+            }
+
+            errors[i] = error;
+        }
+
+        return errors;
+    }
+
+    /**
+     * Insert the {@param values} as transactions of the batch using the ingest {@param mode}.
+     *
+     * @return the error message of each value in the same order, or null if the value was inserted.
+     */
+    private String[] insertAll(UUID batchId, IngestMode mode, List<RowValue> values) {
+        var errors = new String[values.size()];
+
+        if (values.isEmpty()) {
+            return errors;
+        }
+
+        var transactions = values.stream()
+                .map(value -> toTransaction(batchId, value))
+                .toList();
+
+        try {
+            var inserted = databaseThrottle.call(() -> mode == IngestMode.COPY
+                    ? transactionRepository.copyAll(transactions)
+                    : transactionRepository.insertAll(transactions));
+
+            for (var i = 0; i < inserted.length; i++) {
+                if (!inserted[i]) {
+                    errors[i] = DUPLICATE_REFERENCE;
+                }
+            }
+        } catch (DataAccessException e) {
+            if (values.size() == 1) {
+                errors[0] = e.getMessage();
+
+                return errors;
+            }
+
+            // A single row failed the whole statement. Insert each row on its own to know which one it was.
+            for (var i = 0; i < values.size(); i++) {
+                errors[i] = insertAll(batchId, IngestMode.INSERT, values.subList(i, i + 1))[0];
+            }
+        }
+
+        return errors;
+    }
+
+    private void processValid(
+            RowValue value,
+            String error,
+            boolean broken,
+            boolean reused,
+            List<Report> reports,
+            UploadMetrics.Recorder metrics
+    ) {
+        if (error != null) {
+            addReport(value.reference(), value.description(), error, reports);
+            metrics.rejected(DUPLICATE_REFERENCE.equals(error) ? Reason.DUPLICATE : Reason.DATABASE);
+            return;
+        }
+
+        // Amounts are in cents and at most 12 digits, so the sum can not overflow.
+        if (value.startBalance() + value.mutation() != value.endBalance()) {
+            addReport(value.reference(), value.description(), "Ending balance did not match", reports);
+            metrics.rejected(Reason.BALANCE);
+            return;
+        }
+
+        if (broken) {
+            addReport(value.reference(), value.description(), BROKEN_CONTINUITY, reports);
+            metrics.rejected(Reason.CONTINUITY);
+            return;
+        }
+
+        if (reused) {
+            addReport(value.reference(), value.description(), REUSED_REFERENCE, reports);
+            metrics.rejected(Reason.REUSED);
+        }
+    }
+
+    private void processInvalid(RowResult.Invalid result, List<Report> reports, UploadMetrics.Recorder metrics) {
+        var message = "%s at line %d".formatted(result.error(), result.lineNumber());
+        var report = new Report(null, null, message);
+
+        reports.add(report);
+        metrics.rejected(Reason.INVALID);
+    }
+
+    private void addReport(long reference, String description, String message, List<Report> reports) {
+        var report = new Report(reference, description, message);
+
+        reports.add(report);
+    }
+
+    private Transaction toTransaction(UUID batchId, RowValue value) {
+        return Transaction.builder()
+                .batchId(batchId)
+                .reference(value.reference())
+                .accountNumber(value.accountNumber())
+                .description(value.description())
+                .startBalance(Cents.toBigDecimal(value.startBalance()))
+                .mutation(Cents.toBigDecimal(value.mutation()))
+                .endBalance(Cents.toBigDecimal(value.endBalance()))
+                .build();
+    }
+
+    @FunctionalInterface
+    interface WriterFactory {
+        FileWriter create() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Checkpoint {
+        /**
+         * Called once the transactions and the reports of the rows of the {@param chunk} are written.
+         */
+        void commit(Flushed chunk);
+    }
+
+    /**
+     * @param rows          the number of rows of the chunk.
+     * @param invalidRows   the number of rows with a report, other than a duplicate reference.
+     * @param duplicateRows the number of rows with a duplicate reference.
+     * @param reports       the reports of the rows.
+     */
+    record Flushed(int rows, int invalidRows, int duplicateRows, List<Report> reports) {
+    }
+}
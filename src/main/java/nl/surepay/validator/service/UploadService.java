@@ -1,115 +1,237 @@
 package nl.surepay.validator.service;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.surepay.validator.config.UploadProperties;
 import nl.surepay.validator.entity.Batch;
-import nl.surepay.validator.entity.Transaction;
 import nl.surepay.validator.error.exception.StatusException;
 import nl.surepay.validator.factory.FileProcessorFactory;
-import nl.surepay.validator.model.Report;
-import nl.surepay.validator.model.RowResult;
-import nl.surepay.validator.model.RowValue;
-import nl.surepay.validator.repository.BatchRepository;
-import nl.surepay.validator.repository.TransactionRepository;
-import nl.surepay.validator.writer.FileWriter;
-import org.springframework.dao.DuplicateKeyException;
-import org.springframework.data.relational.core.conversion.DbActionExecutionException;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.IngestMode;
+import nl.surepay.validator.processor.CompressedFileProcessor;
+import nl.surepay.validator.processor.FileProcessor;
+import nl.surepay.validator.util.ContentHash;
+import nl.surepay.validator.writer.TeeFileWriter;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class UploadService {
-    private final BatchRepository batchRepository;
     private final FileProcessorFactory fileProcessorFactory;
-    private final TransactionRepository transactionRepository;
+    private final UploadProperties uploadProperties;
+    private final TaskExecutor uploadExecutor;
+    private final UploadPipeline uploadPipeline;
+    private final ReportService reportService;
+
+    /**
+     * Validate and save the transactions of the {@param file} and write the report to the {@param response}. When the
+     * same content was processed before, the report of that batch is written instead.
+     *
+     * @param file       the uploaded csv/json file.
+     * @param mode       how the transactions are saved. When null, the mode is based on the size of the {@param file}.
+     * @param continuity how the balances are checked against the rows before them. When null, they are not.
+     * @param request    the request, which decides the encoding of the report.
+     * @param response   where the report is written to.
+     */
+    public void upload(
+            MultipartFile file,
+            IngestMode mode,
+            Continuity continuity,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        var processor = getProcessor(file);
+        var contentHash = UploadPipeline.hash(file);
+        var completed = uploadPipeline.findCompleted(contentHash, continuity);
+
+        if (completed.isPresent()) {
+            reportService.writeReport(completed.get().getId(), processor, request, response);
 
-    public void upload(MultipartFile file, HttpServletResponse response) {
-        if (file.isEmpty()) {
-            throw new StatusException(BAD_REQUEST, "validation.file.empty", "/body/file");
+            return;
         }
 
-        var fileName = Optional.ofNullable(file.getOriginalFilename())
-                .orElseThrow(() -> new StatusException(BAD_REQUEST, "validation.file.name.empty", "/body/file/name"));
-        var processor = fileProcessorFactory.getProcessor(fileName);
+        var ingestMode = uploadPipeline.resolveMode(file.getSize(), mode);
+        // Large files are read from disk so the processor can parse chunks of the file in parallel. Compressed files
+        // are always read as a stream, so they are not worth the copy.
+        var parallel = file.getSize() >= uploadProperties.parallel().threshold().toBytes()
+                && !(processor instanceof CompressedFileProcessor);
+        var spool = parallel ? spool(file) : null;
+        InputStreamSource source = spool == null ? file : new FileSystemResource(spool);
         // Create a new batch record where we have the ID.
-        var batch = batchRepository.save(new Batch());
+        var batch = uploadPipeline.save(
+                UploadPipeline.newBatch(processor, Batch.Status.RUNNING, contentHash, continuity));
 
-        try (var stream = processor.read(file.getInputStream());
-             var writer = processor.createWriter(batch.getId(), response)) {
+        try {
+            uploadPipeline.process(batch, processor, ingestMode, source, () -> new TeeFileWriter(
+                    processor.createWriter(batch.getId(), request, response),
+                    uploadPipeline.createReportWriter(batch.getId())));
+        } finally {
+            if (spool != null) {
+                deleteSpool(spool);
+            }
+        }
+    }
 
-            for (var iterator = stream.iterator(); iterator.hasNext(); ) {
-                var rowResult = iterator.next();
+    /**
+     * Validate and save the transactions of the body of the {@param request} while it is still being received, and
+     * write the report to the {@param response}. Unlike a multipart file, the body is never written to a temporary
+     * file, so the first rows of the report are written before the whole file is uploaded.
+     * <p>
+     * The {@code Content-Type} decides the processor and the {@code Content-Encoding} the compression of the body.
+     * The hash of the body is only known once it is read, so it is saved for the uploads after this one.
+     *
+     * @param request    the request with the csv/json body.
+     * @param mode       how the transactions are saved. When null, the mode is based on the {@code Content-Length}.
+     * @param continuity how the balances are checked against the rows before them. When null, they are not.
+     * @param response   where the report is written to.
+     */
+    public void upload(
+            HttpServletRequest request,
+            IngestMode mode,
+            Continuity continuity,
+            HttpServletResponse response
+    ) {
+        var contentLength = request.getContentLengthLong();
+
+        if (contentLength == 0) {
+            throw new StatusException(BAD_REQUEST, "validation.file.empty", "/body");
+        }
 
-                processResult(batch.getId(), rowResult, writer);
-            }
-        } catch (IOException e) {
-            batch.setStatus(Batch.Status.FAILED);
+        var processor = fileProcessorFactory.getProcessorByContentType(
+                request.getContentType(),
+                request.getHeader(CONTENT_ENCODING));
+        var ingestMode = uploadPipeline.resolveMode(contentLength, mode);
+        var batch = uploadPipeline.save(UploadPipeline.newBatch(processor, Batch.Status.RUNNING, null, continuity));
+        var digest = ContentHash.newDigest();
+        InputStreamSource source = () -> ContentHash.hashing(request.getInputStream(), digest);
 
-            batchRepository.save(batch);
+        uploadPipeline.process(batch, processor, ingestMode, source, () -> new TeeFileWriter(
+                processor.createWriter(batch.getId(), request, response),
+                uploadPipeline.createReportWriter(batch.getId())));
 
+        try {
+            // The processor can stop before the end of the body, like after the closing bracket of a json array.
+            ContentHash.update(digest, request.getInputStream());
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
-        batch.setStatus(Batch.Status.COMPLETED);
+        batch.setContentHash(ContentHash.toHex(digest));
 
-        batchRepository.save(batch);
+        uploadPipeline.save(batch);
     }
 
-    private void processResult(UUID batchId, RowResult result, FileWriter writer) throws IOException {
-        switch (result) {
-            case RowResult.Valid valid -> processValid(batchId, valid.value(), writer);
-            case RowResult.Invalid error -> processInvalid(error, writer);
+    /**
+     * Queue the {@param file} to be validated and saved in the background. The report can be downloaded with
+     * {@link ReportService#report(UUID, String, HttpServletRequest, HttpServletResponse)} once the batch is completed.
+     *
+     * @param file       the uploaded csv/json file.
+     * @param mode       how the transactions are saved. When null, the mode is based on the size of the {@param file}.
+     * @param continuity how the balances are checked against the rows before them. When null, they are not.
+     * @return the queued batch, or the completed batch of the same content if it was processed before.
+     */
+    public Batch uploadAsync(MultipartFile file, IngestMode mode, Continuity continuity) {
+        var processor = getProcessor(file);
+        var contentHash = UploadPipeline.hash(file);
+        var completed = uploadPipeline.findCompleted(contentHash, continuity);
+
+        if (completed.isPresent()) {
+            return completed.get();
         }
-    }
 
-    private void processValid(UUID batchId, RowValue value, FileWriter writer) throws IOException {
-        var transaction = Transaction.builder()
-                .batchId(batchId)
-                .reference(value.reference())
-                .accountNumber(value.accountNumber())
-                .description(value.description())
-                .startBalance(value.startBalance())
-                .mutation(value.mutation())
-                .endBalance(value.endBalance())
-                .build();
+        var ingestMode = uploadPipeline.resolveMode(file.getSize(), mode);
+        // The multipart file is deleted once the request is done, so keep a copy until the batch is processed.
+        var spool = spool(file);
+        var batch = uploadPipeline.save(
+                UploadPipeline.newBatch(processor, Batch.Status.QUEUED, contentHash, continuity));
 
         try {
-            transactionRepository.save(transaction);
-        } catch (DbActionExecutionException e) {
-            var message = e.getMessage();
+            uploadExecutor.execute(() -> processQueued(batch.getId(), processor, ingestMode, spool));
+        } catch (RejectedExecutionException e) {
+            deleteSpool(spool);
 
-            if (e.getCause() instanceof DuplicateKeyException) {
-                message = "Duplicate reference";
-            }
+            batch.setStatus(Batch.Status.FAILED);
 
-            writeReport(value.reference(), value.description(), message, writer);
-            return;
+            uploadPipeline.save(batch);
+
+            throw new StatusException(SERVICE_UNAVAILABLE, "error.upload.busy", "/body/file");
+        }
+
+        return batch;
+    }
+
+    public Batch getBatch(UUID id) {
+        return uploadPipeline.getBatch(id);
+    }
+
+    private FileProcessor getProcessor(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new StatusException(BAD_REQUEST, "validation.file.empty", "/body/file");
         }
 
-        var expectedEndBalance = value.startBalance().add(value.mutation());
+        var fileName = Optional.ofNullable(file.getOriginalFilename())
+                .orElseThrow(() -> new StatusException(BAD_REQUEST, "validation.file.name.empty", "/body/file/name"));
+
+        return fileProcessorFactory.getProcessor(fileName);
+    }
 
-        if (expectedEndBalance.compareTo(value.endBalance()) != 0) {
-            writeReport(value.reference(), value.description(), "Ending balance did not match", writer);
+    private void processQueued(UUID id, FileProcessor processor, IngestMode mode, Path spool) {
+        try {
+            // Work on a copy, so the batch that was returned to the client does not change while it is written.
+            var batch = uploadPipeline.findBatch(id);
+            batch.setStatus(Batch.Status.RUNNING);
+
+            uploadPipeline.save(batch);
+
+            uploadPipeline.process(
+                    batch,
+                    processor,
+                    mode,
+                    new FileSystemResource(spool),
+                    () -> uploadPipeline.createReportWriter(batch.getId()));
+        } catch (RuntimeException e) {
+            log.error("Failed to process batch {}", id, e);
+        } finally {
+            deleteSpool(spool);
         }
     }
 
-    private void processInvalid(RowResult.Invalid result, FileWriter writer) throws IOException {
-        var message = "%s at line %d".formatted(result.error(), result.lineNumber());
-        var report = new Report(null, null, message);
+    private Path spool(MultipartFile file) {
+        try {
+            var spool = Files.createTempFile("upload-", null);
 
-        writer.write(report);
-    }
+            // Transferring to a file lets the container move its own temporary file instead of copying it.
+            file.transferTo(spool.toFile());
 
-    private void writeReport(long reference, String description, String message, FileWriter writer) throws IOException {
-        var report = new Report(reference, description, message);
+            return spool;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        writer.write(report);
+    private void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled file {}", spool, e);
+        }
     }
 }
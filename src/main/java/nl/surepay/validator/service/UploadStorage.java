@@ -0,0 +1,100 @@
+package nl.surepay.validator.service;
+
+import lombok.RequiredArgsConstructor;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.error.exception.StatusException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Keeps the content of resumable uploads in {@code upload.resumable.directory} until their batch is completed.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadStorage {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadProperties uploadProperties;
+
+    public Path path(UUID id) {
+        return uploadProperties.resumable().directory().resolve(id.toString());
+    }
+
+    public boolean exists(UUID id) {
+        return Files.exists(path(id));
+    }
+
+    /**
+     * Write the {@param size} bytes of {@param inputStream} to the file of the upload, starting at {@param offset}.
+     * Whatever is stored after the offset, like the part of a chunk whose request failed, is dropped first. The content
+     * is forced to the disk before this returns, so the offset can be committed once it does.
+     * <p>
+     * No more than {@param size} bytes are stored, so a chunk that is larger than its range can not fill the disk.
+     *
+     * @return the size of the file after the write.
+     * @throws StatusException if the {@param inputStream} has more or fewer bytes than {@param size}. The bytes that
+     *                         were stored after the offset are dropped.
+     */
+    public long write(UUID id, long offset, long size, InputStream inputStream) throws IOException {
+        var path = path(id);
+
+        Files.createDirectories(path.getParent());
+
+        try (var channel = FileChannel.open(path, CREATE, WRITE)) {
+            if (channel.size() < offset) {
+                var message = "Upload %s has %d bytes, can not write at %d".formatted(id, channel.size(), offset);
+
+                throw new IOException(message);
+            }
+
+            channel.truncate(offset);
+            channel.position(offset);
+
+            var bytes = new byte[BUFFER_SIZE];
+            var buffer = ByteBuffer.wrap(bytes);
+            var remaining = size;
+
+            while (remaining > 0) {
+                var read = inputStream.read(bytes, 0, (int) Math.min(bytes.length, remaining));
+
+                if (read < 0) {
+                    break;
+                }
+
+                buffer.clear().limit(read);
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                remaining -= read;
+            }
+
+            // The stream ended early or has more bytes than the range.
+            if (remaining > 0 || inputStream.read() >= 0) {
+                channel.truncate(offset);
+
+                throw new StatusException(BAD_REQUEST, "validation.contentRange.size", "/header/Content-Range");
+            }
+
+            channel.force(false);
+
+            return channel.size();
+        }
+    }
+
+    public void delete(UUID id) throws IOException {
+        Files.deleteIfExists(path(id));
+    }
+}
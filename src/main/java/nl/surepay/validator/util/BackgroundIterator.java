@@ -0,0 +1,118 @@
+package nl.surepay.validator.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Drains the {@code source} iterator on its own virtual thread into a bounded queue. The elements come out in the same
+ * order, but the source can work ahead of the consumer by up to {@code capacity} elements. Once the queue is full the
+ * source waits for the consumer, so memory stays bounded.
+ * <p>
+ * Exceptions and errors of the source are rethrown to the consumer. Closing the iterator stops the source and waits for
+ * its thread to end, so the source does not keep working after the consumer gave up.
+ *
+ * @param <T> the type of the elements.
+ */
+public class BackgroundIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final Object END = new Object();
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final BlockingQueue<Object> queue;
+    private final Thread thread;
+    private Object next;
+
+    public BackgroundIterator(String name, Iterator<T> source, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = Thread.ofVirtual().name(name).start(() -> drain(source));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new CancellationException("Interrupted while waiting for the next element");
+            }
+        }
+
+        if (next instanceof Failure(var cause)) {
+            switch (cause) {
+                case RuntimeException e -> throw e;
+                case Error e -> throw e;
+                // Only possible when the source throws a checked exception without declaring it.
+                default -> throw new IllegalStateException(cause);
+            }
+        }
+
+        return next != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var value = (T) next;
+        next = null;
+
+        return value;
+    }
+
+    /**
+     * Stop the source and wait up to {@link #CLOSE_TIMEOUT} for its thread to end.
+     *
+     * @throws IllegalStateException when the source did not stop in time.
+     */
+    @Override
+    public void close() {
+        thread.interrupt();
+        queue.clear();
+
+        // A consumer that was interrupted still waits, and is interrupted again once the source stopped.
+        var interrupted = Thread.interrupted();
+
+        try {
+            if (!thread.join(CLOSE_TIMEOUT)) {
+                throw new IllegalStateException("%s did not stop within %s".formatted(thread.getName(), CLOSE_TIMEOUT));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+
+            throw new CancellationException("Interrupted while waiting for %s to stop".formatted(thread.getName()));
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void drain(Iterator<T> source) {
+        try {
+            while (source.hasNext()) {
+                queue.put(source.next());
+            }
+
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // The consumer closed the iterator, so nobody is waiting for the rest.
+        } catch (Throwable e) {
+            try {
+                queue.put(new Failure(e));
+            } catch (InterruptedException ignored) {
+                // The consumer closed the iterator, so nobody is waiting for the failure.
+            }
+        }
+    }
+
+    private record Failure(Throwable cause) {
+    }
+}
@@ -0,0 +1,86 @@
+package nl.surepay.validator.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of 64-bit hashes. It never forgets a hash that was put, and claims to contain a hash that was never put
+ * with about the false positive rate it was sized for, as long as no more than the expected number of hashes are put.
+ * <p>
+ * The bits are set with compare-and-set, so any number of threads can put and test hashes at the same time without a
+ * lock.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    /**
+     * @param expectedInsertions the number of hashes the filter is sized for.
+     * @param falsePositiveRate  the rate of false positives once the expected number of hashes are put.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        var n = Math.max(expectedInsertions, 1);
+        var m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        var words = Math.toIntExact((m + 63) / 64);
+
+        this.words = new AtomicLongArray(words);
+        this.bits = words * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    }
+
+    /**
+     * Put the {@param hash} in the filter.
+     *
+     * @return false if the filter might already contain the {@param hash}, true if it surely did not.
+     */
+    public boolean put(long hash) {
+        var changed = false;
+        var h1 = mix(hash);
+        // Double hashing: probe i is h1 + i * h2, with an odd h2 so the probes do not repeat.
+        var h2 = mix(h1) | 1;
+
+        for (var i = 0; i < hashes; i++) {
+            var bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            var index = (int) (bit >>> 6);
+            var mask = 1L << bit;
+
+            for (var word = words.get(index); (word & mask) == 0; word = words.get(index)) {
+                if (words.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    public boolean mightContain(long hash) {
+        var h1 = mix(hash);
+        var h2 = mix(h1) | 1;
+
+        for (var i = 0; i < hashes; i++) {
+            var bit = Long.remainderUnsigned(h1 + i * h2, bits);
+
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, so that hashes which only differ in a few bits set very different bits.
+     */
+    private static long mix(long value) {
+        var hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
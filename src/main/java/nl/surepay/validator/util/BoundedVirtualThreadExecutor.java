@@ -0,0 +1,49 @@
+package nl.surepay.validator.util;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs each task on its own virtual thread. At most {@code concurrency} tasks run at the same time and at most
+ * {@code queueCapacity} tasks wait for their turn. Tasks beyond that are rejected instead of piling up.
+ */
+public class BoundedVirtualThreadExecutor implements TaskExecutor {
+    private final ThreadFactory threadFactory;
+    private final Semaphore accepted;
+    private final Semaphore running;
+
+    public BoundedVirtualThreadExecutor(String threadNamePrefix, int concurrency, int queueCapacity) {
+        this.threadFactory = Thread.ofVirtual().name(threadNamePrefix, 0).factory();
+        this.accepted = new Semaphore(concurrency + queueCapacity);
+        this.running = new Semaphore(concurrency, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!accepted.tryAcquire()) {
+            throw new TaskRejectedException("Executor is full and did not accept " + task);
+        }
+
+        threadFactory.newThread(() -> run(task)).start();
+    }
+
+    private void run(Runnable task) {
+        try {
+            // Queued tasks are parked virtual threads, which are cheap compared to platform threads.
+            running.acquire();
+
+            try {
+                task.run();
+            } finally {
+                running.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            accepted.release();
+        }
+    }
+}
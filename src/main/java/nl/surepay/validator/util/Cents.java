@@ -0,0 +1,184 @@
+package nl.surepay.validator.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Amounts as a number of cents in a {@code long}. The balance columns are {@code numeric(12,2)}, so an amount has at
+ * most 2 decimals and 10 digits before the decimal point.
+ */
+public final class Cents {
+    public static final int SCALE = 2;
+    public static final long MAX = 999_999_999_999L;
+    // Digits before the decimal point of the largest amount.
+    private static final int INTEGER_DIGITS = 10;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+
+        for (var i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private Cents() {
+    }
+
+    /**
+     * Parse a decimal like {@code -41.83}, {@code +2}, {@code .5} or {@code 1.5e2}, like {@link BigDecimal} does. Trailing
+     * zeros and an exponent are accepted as long as the value has at most 2 decimals once they are applied, so
+     * {@code 1.230} and {@code 1234e-2} are fine but {@code 1.5e-2} is not.
+     *
+     * @return the number of cents.
+     * @throws NumberFormatException if the value is not a number, has more than 2 decimals or does not fit in the
+     *                               column. The message completes a sentence that starts with the name of the value.
+     */
+    public static long parse(String value) {
+        if (value == null) {
+            throw notANumber();
+        }
+
+        return parse(value.toCharArray(), 0, value.length());
+    }
+
+    /**
+     * Same as {@link #parse(String)}, for the characters {@code chars[from..to)}.
+     */
+    public static long parse(char[] chars, int from, int to) {
+        var i = from;
+        var negative = false;
+
+        if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        var cents = 0L;
+        var digits = 0;
+        // Number of decimals read so far, or -1 before the decimal point.
+        var decimals = -1;
+
+        for (; i < to; i++) {
+            var c = chars[i];
+
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+
+            // An exponent, or a digit that only fits once trailing zeros or an exponent are applied, is rare.
+            if (c == 'e' || c == 'E' || (c >= '0' && c <= '9' && (decimals >= SCALE || cents > MAX / 10))) {
+                return parseDecimal(chars, from, to);
+            }
+
+            if (c < '0' || c > '9') {
+                throw notANumber();
+            }
+
+            if (decimals >= 0) {
+                decimals++;
+            }
+
+            cents = cents * 10 + (c - '0');
+            digits++;
+        }
+
+        if (digits == 0) {
+            throw notANumber();
+        }
+
+        // Scale up when there are less than 2 decimals.
+        for (var scale = Math.max(decimals, 0); scale < SCALE; scale++) {
+            cents *= 10;
+        }
+
+        if (cents > MAX) {
+            throw tooLarge();
+        }
+
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Parse the characters {@code chars[from..to)} with {@link BigDecimal}, for the values that {@link #parse(String)}
+     * can not parse digit by digit.
+     */
+    private static long parseDecimal(char[] chars, int from, int to) {
+        BigDecimal value;
+
+        try {
+            value = new BigDecimal(chars, from, to - from);
+        } catch (NumberFormatException e) {
+            throw notANumber();
+        }
+
+        return fromUnscaled(value);
+    }
+
+    /**
+     * Convert the decimal {@code unscaled / 10^scale}, like a decimal column of a Parquet file, to cents.
+     *
+     * @throws NumberFormatException if the value has more than 2 decimals or does not fit in the column, with the same
+     *                               messages as {@link #parse(String)}.
+     */
+    public static long fromUnscaled(long unscaled, int scale) {
+        // The power of ten does not fit in a long, so compare as decimals.
+        if (Math.abs(scale - SCALE) > 18) {
+            return fromUnscaled(BigDecimal.valueOf(unscaled, scale));
+        }
+
+        var factor = POWERS_OF_TEN[Math.abs(scale - SCALE)];
+        long cents;
+
+        if (scale <= SCALE) {
+            if (unscaled > MAX / factor || unscaled < -MAX / factor) {
+                throw tooLarge();
+            }
+
+            cents = unscaled * factor;
+        } else {
+            if (unscaled % factor != 0) {
+                throw new NumberFormatException("has more than %d decimals".formatted(SCALE));
+            }
+
+            cents = unscaled / factor;
+        }
+
+        if (cents > MAX || cents < -MAX) {
+            throw tooLarge();
+        }
+
+        return cents;
+    }
+
+    /**
+     * Same as {@link #fromUnscaled(long, int)}, for a decimal of any size.
+     */
+    public static long fromUnscaled(BigDecimal value) {
+        // The scale can be anything, like for 1e999999999, so check it before the digits are expanded.
+        var stripped = value.stripTrailingZeros();
+
+        if (stripped.scale() > SCALE) {
+            throw new NumberFormatException("has more than %d decimals".formatted(SCALE));
+        }
+
+        if (stripped.signum() != 0 && (long) stripped.precision() - stripped.scale() > INTEGER_DIGITS) {
+            throw tooLarge();
+        }
+
+        return stripped.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    private static NumberFormatException notANumber() {
+        return new NumberFormatException("is not a valid number");
+    }
+
+    private static NumberFormatException tooLarge() {
+        return new NumberFormatException("is too large");
+    }
+}
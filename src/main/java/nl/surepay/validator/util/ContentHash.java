@@ -0,0 +1,66 @@
+package nl.surepay.validator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of the content of an upload as 64 hex characters. Uploads with the same hash have the same report.
+ */
+public final class ContentHash {
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentHash() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the hash of everything that is left in the {@param inputStream}.
+     */
+    public static String of(InputStream inputStream) throws IOException {
+        var digest = newDigest();
+
+        update(digest, inputStream);
+
+        return toHex(digest);
+    }
+
+    /**
+     * Add everything that is left in the {@param inputStream} to the {@param digest}.
+     */
+    public static void update(MessageDigest digest, InputStream inputStream) throws IOException {
+        var buffer = new byte[BUFFER_SIZE];
+
+        for (var read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Wrap the {@param inputStream} so that the bytes read from it are added to the {@param digest}. Closing the
+     * wrapper does not close the {@param inputStream}, so the bytes a reader left behind can still be added with
+     * {@link #update(MessageDigest, InputStream)}.
+     */
+    public static InputStream hashing(InputStream inputStream, MessageDigest digest) {
+        return new DigestInputStream(inputStream, digest) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,57 @@
+package nl.surepay.validator.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Passes the number of bytes of every read from the wrapped stream to a consumer, like to follow how far a file is
+ * read.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final LongConsumer bytesRead;
+
+    /**
+     * @param inputStream the stream to read from.
+     * @param bytesRead   called with the number of bytes of every read or skip.
+     */
+    public CountingInputStream(InputStream inputStream, LongConsumer bytesRead) {
+        super(inputStream);
+
+        this.bytesRead = bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = super.read();
+
+        if (b >= 0) {
+            bytesRead.accept(1);
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var read = super.read(b, off, len);
+
+        if (read > 0) {
+            bytesRead.accept(read);
+        }
+
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = super.skip(n);
+
+        if (skipped > 0) {
+            bytesRead.accept(skipped);
+        }
+
+        return skipped;
+    }
+}
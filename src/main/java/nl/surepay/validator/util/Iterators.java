@@ -0,0 +1,56 @@
+package nl.surepay.validator.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+public final class Iterators {
+    private Iterators() {
+    }
+
+    /**
+     * Group the elements of the {@param source} into lists of {@param size} elements. The last list can be smaller.
+     */
+    public static <T> Iterator<List<T>> chunk(Iterator<T> source, int size) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!source.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                var chunk = new ArrayList<T>(size);
+
+                while (chunk.size() < size && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+
+                return chunk;
+            }
+        };
+    }
+
+    /**
+     * Lazily apply the {@param mapper} to each element of the {@param source}.
+     */
+    public static <T, R> Iterator<R> map(Iterator<T> source, Function<T, R> mapper) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return mapper.apply(source.next());
+            }
+        };
+    }
+}
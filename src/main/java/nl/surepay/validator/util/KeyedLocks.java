@@ -0,0 +1,54 @@
+package nl.surepay.validator.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A lock per key, like the ID of a batch. The lock of a key only exists while a thread holds it or waits for it, so
+ * the memory stays at the number of keys that are in use.
+ *
+ * @param <K> the type of the keys.
+ */
+public class KeyedLocks<K> {
+    private final ConcurrentHashMap<K, Entry> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Wait for the lock of the {@param key}, then return the result of the {@param supplier}.
+     *
+     * @param key      the key to lock.
+     * @param supplier the work to run while the lock is held.
+     * @return the result of the {@param supplier}.
+     */
+    public <T> T call(K key, Supplier<T> supplier) {
+        // The number of users only changes inside compute, which is atomic per key.
+        var entry = locks.compute(key, (k, value) -> {
+            var result = value == null ? new Entry() : value;
+            result.users++;
+
+            return result;
+        });
+
+        entry.lock.lock();
+
+        try {
+            return supplier.get();
+        } finally {
+            entry.lock.unlock();
+
+            locks.computeIfPresent(key, (k, value) -> --value.users == 0 ? null : value);
+        }
+    }
+
+    /**
+     * @return the number of keys that are locked or waited for.
+     */
+    int size() {
+        return locks.size();
+    }
+
+    private static class Entry {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users;
+    }
+}
@@ -0,0 +1,158 @@
+package nl.surepay.validator.util;
+
+/**
+ * Open addressing hash set of primitive long values. Unlike {@code HashSet<Long>}, adding a value does not box it or
+ * allocate a node, which keeps tracking millions of references cheap on both memory and the garbage collector.
+ */
+public class LongHashSet {
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    // Zero marks an empty slot in the table so the value itself is tracked separately.
+    private boolean containsZero;
+    private long[] keys;
+    private int mask;
+    private int size;
+
+    public LongHashSet() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public LongHashSet(int expectedSize) {
+        // Keep the load factor at or below 0.5 so probe sequences stay short.
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1);
+    }
+
+    /**
+     * Add the {@param value} to the set.
+     *
+     * @param value the value to add.
+     * @return true if the set did not contain the {@param value} yet.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+
+            containsZero = true;
+            size++;
+
+            return true;
+        }
+
+        var index = indexOf(value);
+
+        while (keys[index] != 0) {
+            if (keys[index] == value) {
+                return false;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = value;
+
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+
+        for (var index = indexOf(value); keys[index] != 0; index = (index + 1) & mask) {
+            if (keys[index] == value) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Remove the {@param value} from the set.
+     *
+     * @param value the value to remove.
+     * @return true if the set contained the {@param value}.
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+
+            containsZero = false;
+            size--;
+
+            return true;
+        }
+
+        var gap = indexOf(value);
+
+        while (keys[gap] != value) {
+            if (keys[gap] == 0) {
+                return false;
+            }
+
+            gap = (gap + 1) & mask;
+        }
+
+        // Shift the following entries of the probe sequence back so lookups never stop at the removed slot.
+        for (var next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            var ideal = indexOf(keys[next]);
+
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+        }
+
+        keys[gap] = 0;
+        size--;
+
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int indexOf(long value) {
+        var hash = value * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash() {
+        var oldKeys = keys;
+
+        allocate(oldKeys.length * 2);
+
+        for (var key : oldKeys) {
+            if (key == 0) {
+                continue;
+            }
+
+            var index = indexOf(key);
+
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = key;
+        }
+    }
+}
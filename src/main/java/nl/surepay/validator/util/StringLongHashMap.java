@@ -0,0 +1,109 @@
+package nl.surepay.validator.util;
+
+/**
+ * Open addressing hash map of string keys to primitive long values. Unlike {@code HashMap<String, Long>}, putting a
+ * value does not box it or allocate an entry, so a map of millions of accounts is two arrays.
+ */
+public class StringLongHashMap {
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private String[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public StringLongHashMap() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    public StringLongHashMap(int expectedSize) {
+        // Keep the load factor at or below 0.5 so probe sequences stay short.
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1);
+    }
+
+    /**
+     * @return the value of the {@param key}, or {@param defaultValue} if the map does not contain the {@param key}.
+     */
+    public long get(String key, long defaultValue) {
+        for (var index = indexOf(key); keys[index] != null; index = (index + 1) & mask) {
+            if (keys[index].equals(key)) {
+                return values[index];
+            }
+        }
+
+        return defaultValue;
+    }
+
+    public boolean containsKey(String key) {
+        for (var index = indexOf(key); keys[index] != null; index = (index + 1) & mask) {
+            if (keys[index].equals(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Set the value of the {@param key} to {@param value}.
+     */
+    public void put(String key, long value) {
+        var index = indexOf(key);
+
+        while (keys[index] != null) {
+            if (keys[index].equals(key)) {
+                values[index] = value;
+
+                return;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(String key) {
+        // Spread the bits of the string hash, since similar account numbers have similar hashes.
+        var hash = key.hashCode() * 0x9E3779B9;
+
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash() {
+        var oldKeys = keys;
+        var oldValues = values;
+
+        allocate(oldKeys.length * 2);
+
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+
+            var index = indexOf(oldKeys[i]);
+
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package nl.surepay.validator.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many threads run a piece of work at the same time. Waiting threads park on a {@link Semaphore}, so
+ * virtual threads release their carrier thread while they wait.
+ */
+public class Throttle {
+    private final Semaphore semaphore;
+
+    public Throttle(int permits) {
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    /**
+     * Wait for a permit, then return the result of the {@param supplier}.
+     *
+     * @param supplier the work to run once a permit is available.
+     * @return the result of the {@param supplier}.
+     */
+    public <T> T call(Supplier<T> supplier) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while waiting for a permit", e);
+        }
+
+        try {
+            return supplier.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
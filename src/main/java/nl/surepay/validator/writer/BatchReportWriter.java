@@ -0,0 +1,91 @@
+package nl.surepay.validator.writer;
+
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.util.Throttle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores the reports of a batch in the database so they can be downloaded after the upload is done. The inserts wait
+ * for a permit of the {@link Throttle}, like the rest of the database work of the upload.
+ */
+public class BatchReportWriter implements FileWriter {
+    private final ReportRepository reportRepository;
+    private final Throttle databaseThrottle;
+    private final UUID batchId;
+    private final int batchSize;
+    private final List<Report> reports;
+    private long line;
+
+    public BatchReportWriter(
+            ReportRepository reportRepository,
+            Throttle databaseThrottle,
+            UUID batchId,
+            int batchSize
+    ) {
+        this(reportRepository, databaseThrottle, batchId, batchSize, 0);
+    }
+
+    /**
+     * @param firstLine the line of the first report, which is the number of reports already saved when a batch is
+     *                  resumed.
+     */
+    public BatchReportWriter(
+            ReportRepository reportRepository,
+            Throttle databaseThrottle,
+            UUID batchId,
+            int batchSize,
+            long firstLine
+    ) {
+        this.reportRepository = reportRepository;
+        this.databaseThrottle = databaseThrottle;
+        this.batchId = batchId;
+        this.batchSize = batchSize;
+        this.reports = new ArrayList<>(batchSize);
+        this.line = firstLine;
+    }
+
+    /**
+     * @return the line of the next report, which is the number of reports saved once {@link #flush()} is called.
+     */
+    public long line() {
+        return line + reports.size();
+    }
+
+    @Override
+    public void write(Report report) {
+        reports.add(report);
+
+        if (reports.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Save the reports that are buffered.
+     */
+    public void flush() {
+        if (reports.isEmpty()) {
+            return;
+        }
+
+        var page = List.copyOf(reports);
+
+        databaseThrottle.call(() -> {
+            reportRepository.insertAll(batchId, line, page);
+
+            return null;
+        });
+
+        line += reports.size();
+        reports.clear();
+    }
+}
@@ -1,39 +1,62 @@
 package nl.surepay.validator.writer;
 
-import com.opencsv.CSVWriter;
 import nl.surepay.validator.model.Report;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.util.Optional;
+import java.io.OutputStream;
 
+/**
+ * Writes the reports as csv, encoded as UTF-8 straight to the output stream. Every value is quoted and a quote in a
+ * value is doubled. A missing description or error message is an empty field without quotes.
+ */
 public class CsvFileWriter implements FileWriter {
-    private static final String[] HEADERS = new String[]{
-            "Reference",
-            "Description",
-            "Error Message",
-    };
+    private static final byte[] HEADERS = Utf8Output.ascii("\"Reference\",\"Description\",\"Error Message\"\n");
+    private static final byte[][] ESCAPES = new byte[128][];
 
-    private final CSVWriter writer;
+    static {
+        ESCAPES['"'] = Utf8Output.ascii("\"\"");
+    }
+
+    private final Utf8Output output;
 
-    public CsvFileWriter(Writer writer) {
-        this.writer = new CSVWriter(writer);
-        this.writer.writeNext(HEADERS);
+    /**
+     * Write the report to the {@param outputStream} as UTF-8.
+     *
+     * @param flushThreshold number of bytes that are buffered before they are written to the {@param outputStream}.
+     */
+    public CsvFileWriter(OutputStream outputStream, int flushThreshold) throws IOException {
+        this.output = new Utf8Output(outputStream, flushThreshold);
+        this.output.write(HEADERS);
     }
 
     @Override
-    public void write(Report report) {
-        var line = new String[]{
-                Optional.ofNullable(report.reference()).map(String::valueOf).orElse(""),
-                report.description(),
-                report.errorMessage()
-        };
-
-        this.writer.writeNext(line);
+    public void write(Report report) throws IOException {
+        output.write((byte) '"');
+
+        if (report.reference() != null) {
+            output.write(report.reference());
+        }
+
+        output.write((byte) '"');
+        output.write((byte) ',');
+        writeValue(report.description());
+        output.write((byte) ',');
+        writeValue(report.errorMessage());
+        output.write((byte) '\n');
     }
 
     @Override
     public void close() throws IOException {
-        this.writer.close();
+        output.close();
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        output.write((byte) '"');
+        output.write(value, ESCAPES);
+        output.write((byte) '"');
     }
 }
@@ -1,28 +1,88 @@
 package nl.surepay.validator.writer;
 
-import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import nl.surepay.validator.model.Report;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
 
+/**
+ * Writes the reports as a json array, encoded as UTF-8 straight to the output stream. The output is the same as
+ * serializing the reports with a default {@link com.fasterxml.jackson.databind.ObjectMapper}, including the escaping
+ * of strings, but without reflection on every report.
+ */
 public class JsonFileWriter implements FileWriter {
-    private final JsonGenerator generator;
+    private static final byte[] REFERENCE = Utf8Output.ascii("{\"reference\":");
+    private static final byte[] DESCRIPTION = Utf8Output.ascii(",\"description\":");
+    private static final byte[] ERROR_MESSAGE = Utf8Output.ascii(",\"errorMessage\":");
+    private static final byte[] NULL = Utf8Output.ascii("null");
+    private static final byte[][] ESCAPES = new byte[128][];
 
-    public JsonFileWriter(ObjectMapper objectMapper, Writer writer) throws IOException {
-        this.generator = objectMapper.createGenerator(writer).enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
-        this.generator.writeStartArray();
+    static {
+        // Control characters, with the short escapes that Jackson uses.
+        for (var c = 0; c < 0x20; c++) {
+            ESCAPES[c] = Utf8Output.ascii("\\u%04X".formatted(c));
+        }
+
+        ESCAPES['\b'] = Utf8Output.ascii("\\b");
+        ESCAPES['\t'] = Utf8Output.ascii("\\t");
+        ESCAPES['\n'] = Utf8Output.ascii("\\n");
+        ESCAPES['\f'] = Utf8Output.ascii("\\f");
+        ESCAPES['\r'] = Utf8Output.ascii("\\r");
+        ESCAPES['"'] = Utf8Output.ascii("\\\"");
+        ESCAPES['\\'] = Utf8Output.ascii("\\\\");
+    }
+
+    private final Utf8Output output;
+    private boolean first = true;
+
+    /**
+     * Write the report to the {@param outputStream} as UTF-8.
+     *
+     * @param flushThreshold number of bytes that are buffered before they are written to the {@param outputStream}.
+     */
+    public JsonFileWriter(OutputStream outputStream, int flushThreshold) throws IOException {
+        this.output = new Utf8Output(outputStream, flushThreshold);
+        this.output.write((byte) '[');
     }
 
     @Override
     public void write(Report report) throws IOException {
-        this.generator.writeObject(report);
+        if (!first) {
+            output.write((byte) ',');
+        }
+
+        first = false;
+
+        output.write(REFERENCE);
+
+        if (report.reference() == null) {
+            output.write(NULL);
+        } else {
+            output.write(report.reference());
+        }
+
+        output.write(DESCRIPTION);
+        writeString(report.description());
+        output.write(ERROR_MESSAGE);
+        writeString(report.errorMessage());
+        output.write((byte) '}');
     }
 
     @Override
     public void close() throws IOException {
-        this.generator.flush();
-        this.generator.close();
+        output.write((byte) ']');
+        output.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            output.write(NULL);
+
+            return;
+        }
+
+        output.write((byte) '"');
+        output.write(value, ESCAPES);
+        output.write((byte) '"');
     }
 }
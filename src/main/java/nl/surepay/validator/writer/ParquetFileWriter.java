@@ -0,0 +1,193 @@
+package nl.surepay.validator.writer;
+
+import nl.surepay.validator.model.Report;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.conf.HadoopParquetConfiguration;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Types;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+
+/**
+ * Writes the reports as a Parquet file with the columns {@code reference}, {@code description} and
+ * {@code errorMessage}, the names of the json report. The file is written to the output stream from start to end, so
+ * it can be the response. A row group is kept in memory until it is full, so a report is sent in parts of 8 MB.
+ */
+public class ParquetFileWriter implements FileWriter {
+    static final MessageType SCHEMA = Types.buildMessage()
+            .optional(INT64).named("reference")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("description")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("errorMessage")
+            .named("report");
+
+    private static final long ROW_GROUP_SIZE = 8L * 1024 * 1024;
+
+    private final ParquetWriter<Report> writer;
+
+    public ParquetFileWriter(OutputStream outputStream) throws IOException {
+        this.writer = new Builder(new StreamOutputFile(outputStream))
+                .withCompressionCodec(CompressionCodecName.ZSTD)
+                .withRowGroupSize(ROW_GROUP_SIZE)
+                .build();
+    }
+
+    @Override
+    public void write(Report report) throws IOException {
+        writer.write(report);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static class Builder extends ParquetWriter.Builder<Report, Builder> {
+        private Builder(OutputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Report> getWriteSupport(ParquetConfiguration conf) {
+            return new ReportWriteSupport();
+        }
+
+        /**
+         * Only called by a builder of a Hadoop path, which this one is not.
+         */
+        @Override
+        @Deprecated
+        protected WriteSupport<Report> getWriteSupport(Configuration conf) {
+            return getWriteSupport(new HadoopParquetConfiguration(conf));
+        }
+    }
+
+    private static class ReportWriteSupport extends WriteSupport<Report> {
+        private RecordConsumer recordConsumer;
+
+        @Override
+        public WriteContext init(ParquetConfiguration configuration) {
+            return new WriteContext(SCHEMA, Map.of());
+        }
+
+        /**
+         * Only called by a writer of a Hadoop path, which this one is not.
+         */
+        @Override
+        @Deprecated
+        public WriteContext init(Configuration configuration) {
+            return init(new HadoopParquetConfiguration(configuration));
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(Report report) {
+            recordConsumer.startMessage();
+
+            // A null value is written by leaving out the field.
+            if (report.reference() != null) {
+                recordConsumer.startField("reference", 0);
+                recordConsumer.addLong(report.reference());
+                recordConsumer.endField("reference", 0);
+            }
+
+            writeString("description", 1, report.description());
+            writeString("errorMessage", 2, report.errorMessage());
+
+            recordConsumer.endMessage();
+        }
+
+        private void writeString(String field, int index, String value) {
+            if (value == null) {
+                return;
+            }
+
+            recordConsumer.startField(field, index);
+            recordConsumer.addBinary(Binary.fromString(value));
+            recordConsumer.endField(field, index);
+        }
+    }
+
+    /**
+     * An {@link OutputFile} that is written once, from start to end, to a stream.
+     */
+    private record StreamOutputFile(OutputStream outputStream) implements OutputFile {
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+                private boolean closed;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    outputStream.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    outputStream.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    outputStream.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // The writer closes the file when the footer is written, and again when it is closed.
+                    if (closed) {
+                        return;
+                    }
+
+                    closed = true;
+                    outputStream.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package nl.surepay.validator.writer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+
+/**
+ * Negotiates the compression of a report with the {@code Accept-Encoding} header of the request.
+ */
+public final class ResponseEncoding {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ResponseEncoding() {
+    }
+
+    /**
+     * Return the output stream of the {@param response}. When the client accepts gzip, the content is compressed while
+     * it is written, and the {@code Content-Encoding} header is set. Closing the returned stream finishes the
+     * compressed content.
+     *
+     * @param request  the request with the {@code Accept-Encoding} header.
+     * @param response the response to write to. The headers must not be committed yet.
+     * @return the stream to write the content to.
+     * @throws IOException if the output stream of the {@param response} can not be opened.
+     */
+    public static OutputStream open(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // The content depends on the header, so caches must not mix them up.
+        response.addHeader(VARY, ACCEPT_ENCODING);
+
+        if (!acceptsGzip(request.getHeader(ACCEPT_ENCODING))) {
+            return response.getOutputStream();
+        }
+
+        response.setHeader(CONTENT_ENCODING, "gzip");
+
+        return new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE);
+    }
+
+    /**
+     * Whether gzip, or any encoding ({@code *}), is in the {@param acceptEncoding} without a quality of 0.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (!StringUtils.hasText(acceptEncoding)) {
+            return false;
+        }
+
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim();
+
+            if (!name.equalsIgnoreCase("gzip") && !name.equalsIgnoreCase("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+
+            if (quality(parameters) > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static double quality(String[] parameters) {
+        for (var i = 1; i < parameters.length; i++) {
+            var parameter = parameters[i].trim();
+
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+}
@@ -0,0 +1,31 @@
+package nl.surepay.validator.writer;
+
+import nl.surepay.validator.model.Report;
+
+import java.io.IOException;
+
+/**
+ * Writes every {@link Report} to both writers.
+ */
+public class TeeFileWriter implements FileWriter {
+    private final FileWriter first;
+    private final FileWriter second;
+
+    public TeeFileWriter(FileWriter first, FileWriter second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void write(Report report) throws IOException {
+        first.write(report);
+        second.write(report);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (second) {
+            first.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package nl.surepay.validator.writer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Encodes the values of a report as UTF-8 into a reused buffer. The buffer is written to the {@link OutputStream} once
+ * it holds {@code flushThreshold} bytes, so a report is written without a {@link java.io.Writer}, and without a
+ * {@link String} per value.
+ */
+final class Utf8Output implements Closeable {
+    // Room for the longest number, escape sequence or encoded character.
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private final OutputStream outputStream;
+    private final byte[] buffer;
+    private int count;
+
+    Utf8Output(OutputStream outputStream, int flushThreshold) {
+        this.outputStream = outputStream;
+        this.buffer = new byte[Math.max(flushThreshold, MIN_BUFFER_SIZE)];
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(US_ASCII);
+    }
+
+    void write(byte b) throws IOException {
+        ensure(1);
+        buffer[count++] = b;
+    }
+
+    void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+
+            if (bytes.length > buffer.length) {
+                outputStream.write(bytes);
+
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    void write(long value) throws IOException {
+        ensure(20);
+
+        if (value < 0) {
+            buffer[count++] = '-';
+        }
+
+        // Work with the negative value, so that Long.MIN_VALUE fits.
+        var negative = value < 0 ? value : -value;
+        var length = 1;
+
+        for (var rest = negative / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+
+        for (var i = count + length - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+
+        count += length;
+    }
+
+    /**
+     * Write the {@param value} as UTF-8, replacing the ASCII characters that have an escape sequence in
+     * {@param escapes}, which has an entry per ASCII character. A lone surrogate is written as {@code ?}, like
+     * {@link String#getBytes} does.
+     */
+    void write(String value, byte[][] escapes) throws IOException {
+        var length = value.length();
+
+        for (var i = 0; i < length; i++) {
+            var c = value.charAt(i);
+
+            if (c < 0x80) {
+                var escape = escapes[c];
+
+                if (escape == null) {
+                    ensure(1);
+                    buffer[count++] = (byte) c;
+                } else {
+                    write(escape);
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[count++] = (byte) (0xC0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                ensure(3);
+                buffer[count++] = (byte) (0xE0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                ensure(4);
+                buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                write((byte) '?');
+            }
+        }
+    }
+
+    /**
+     * Write the buffer and flush the {@link OutputStream}.
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (outputStream) {
+            flush();
+        }
+    }
+
+    private void ensure(int length) throws IOException {
+        if (count + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            outputStream.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+--changeset leijendekker:add-batch-file-type
+alter table batch add column file_type character varying(10);
+
+--changeset leijendekker:create-report-table
+create table report (
+    batch_id uuid not null references batch(id) on delete cascade,
+    line bigint not null,
+    reference bigint,
+    description text,
+    error_message text not null,
+    primary key (batch_id, line)
+);
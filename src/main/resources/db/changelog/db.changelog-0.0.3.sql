@@ -0,0 +1,8 @@
+--liquibase formatted sql
+--changeset leijendekker:add-batch-resumable-upload
+alter table batch
+    add column file_name character varying(255),
+    add column upload_length bigint,
+    add column received_bytes bigint not null default 0,
+    add column processed_rows bigint not null default 0,
+    add column report_lines bigint not null default 0;
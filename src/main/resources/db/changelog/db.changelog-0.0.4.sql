@@ -0,0 +1,6 @@
+--liquibase formatted sql
+--changeset leijendekker:add-batch-content-hash
+alter table batch add column content_hash character(64);
+
+--changeset leijendekker:create-batch-content-hash-index
+create index batch_content_hash_idx on batch(content_hash) where status = 'COMPLETED';
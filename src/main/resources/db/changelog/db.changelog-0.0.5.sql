@@ -0,0 +1,3 @@
+--liquibase formatted sql
+--changeset leijendekker:create-transaction-account-number-reference-index
+create index transaction_account_number_reference_idx on "transaction"(account_number, reference);
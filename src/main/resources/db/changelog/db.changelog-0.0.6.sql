@@ -0,0 +1,6 @@
+--liquibase formatted sql
+--changeset leijendekker:add-batch-continuity
+alter table batch add column continuity character varying(10) not null default 'NONE';
+
+--changeset leijendekker:create-transaction-account-number-id-index
+create index transaction_account_number_id_idx on "transaction"(account_number, id);
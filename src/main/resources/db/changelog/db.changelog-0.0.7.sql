@@ -0,0 +1,5 @@
+--liquibase formatted sql
+--changeset leijendekker:add-batch-row-counts
+alter table batch
+    add column invalid_rows bigint not null default 0,
+    add column duplicate_rows bigint not null default 0;
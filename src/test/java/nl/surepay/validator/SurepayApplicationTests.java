@@ -1,32 +1,66 @@
 package nl.surepay.validator;
 
+import com.jayway.jsonpath.JsonPath;
 import nl.surepay.validator.controller.UploadController;
+import nl.surepay.validator.entity.Transaction;
+import nl.surepay.validator.repository.TransactionRepository;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @Import(TestcontainersConfiguration.class)
-@SpringBootTest
+@SpringBootTest(properties = "upload.resumable.directory=${java.io.tmpdir}/surepay/uploads")
 @AutoConfigureMockMvc
 class SurepayApplicationTests {
+    private static final String ACCOUNT_NUMBER = "NL93ABNA0585619023";
+
     @Autowired
     UploadController uploadController;
 
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void deleteBatches() {
+        // The tests upload the same records, which would otherwise replay or reuse the references of each other.
+        jdbcTemplate.update("delete from batch");
+    }
+
     @Test
     void contextLoads() {
         assertNotNull(uploadController);
@@ -40,7 +74,7 @@ class SurepayApplicationTests {
         mockMvc.perform(multipart("/api/v1/uploads").file(file))
                 .andDo(print())
                 .andExpect(status().isOk())
-                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
                 .andExpect(header().string(
                         "Content-Disposition",
                         Matchers.matchesRegex("attachment; filename=upload-report-(.*).csv")))
@@ -51,6 +85,21 @@ class SurepayApplicationTests {
                         """));
     }
 
+    @Test
+    void uploadCsvBody_shouldReturnCsvReport() throws Exception {
+        var resource = new ClassPathResource("input/records.csv");
+
+        mockMvc.perform(post("/api/v1/uploads").contentType("text/csv").content(resource.getContentAsByteArray()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string("""
+                        "Reference","Description","Error Message"
+                        "112806","Book Peter de Vries","Duplicate reference"
+                        "112806","Book Richard Tyson","Duplicate reference"
+                        """));
+    }
+
     @Test
     void uploadJsonFile_shouldReturnJsonReport() throws Exception {
         var resource = new ClassPathResource("input/records.json");
@@ -65,4 +114,167 @@ class SurepayApplicationTests {
                         Matchers.matchesRegex("attachment; filename=upload-report-(.*).json")))
                 .andExpect(content().string("[{\"reference\":167875,\"description\":\"Toy Greg Alysha\",\"errorMessage\":\"Ending balance did not match\"},{\"reference\":165102,\"description\":\"Book Shevaun Taylor\",\"errorMessage\":\"Ending balance did not match\"}]"));
     }
+
+    @Test
+    void uploadCsvFileAsync_shouldReturnBatchAndStoreReport() throws Exception {
+        var resource = new ClassPathResource("input/records.csv");
+        var file = new MockMultipartFile("file", "records.csv", "text/csv", resource.getInputStream());
+
+        var result = mockMvc.perform(multipart("/api/v1/uploads").file(file).param("async", "true"))
+                .andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andReturn();
+        String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        for (var i = 0; i < 100; i++) {
+            var batch = mockMvc.perform(get("/api/v1/uploads/{id}", id)).andReturn();
+            String batchStatus = JsonPath.read(batch.getResponse().getContentAsString(), "$.status");
+
+            if (batchStatus.equals("COMPLETED")) {
+                break;
+            }
+
+            Thread.sleep(100);
+        }
+
+        mockMvc.perform(get("/api/v1/uploads/{id}/report", id))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string("""
+                        "Reference","Description","Error Message"
+                        "112806","Book Peter de Vries","Duplicate reference"
+                        "112806","Book Richard Tyson","Duplicate reference"
+                        """));
+
+
+        mockMvc.perform(get("/api/v1/uploads/{id}/report", id).param("format", "json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", APPLICATION_JSON_VALUE))
+                .andExpect(content().string("[{\"reference\":112806,\"description\":\"Book Peter de Vries\",\"errorMessage\":\"Duplicate reference\"},{\"reference\":112806,\"description\":\"Book Richard Tyson\",\"errorMessage\":\"Duplicate reference\"}]"));
+    }
+
+    @Test
+    void uploadCsvFileResumable_shouldStoreReport() throws Exception {
+        var content = new ClassPathResource("input/records.csv").getContentAsByteArray();
+        var half = content.length / 2;
+
+        var result = mockMvc.perform(post("/api/v1/uploads/resumable")
+                        .param("name", "records.csv")
+                        .param("length", String.valueOf(content.length)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("UPLOADING"))
+                .andReturn();
+        String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(put("/api/v1/uploads/{id}", id)
+                        .header("Content-Range", "bytes 0-%d/%d".formatted(half - 1, content.length))
+                        .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedBytes").value(half));
+
+        // A chunk that does not continue where the last one ended is rejected.
+        mockMvc.perform(put("/api/v1/uploads/{id}", id)
+                        .header("Content-Range", "bytes 0-%d/%d".formatted(half - 1, content.length))
+                        .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(put("/api/v1/uploads/{id}", id)
+                        .header("Content-Range", "bytes %d-%d/%d".formatted(half, content.length - 1, content.length))
+                        .content(Arrays.copyOfRange(content, half, content.length)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedBytes").value(content.length));
+
+        for (var i = 0; i < 100; i++) {
+            var batch = mockMvc.perform(get("/api/v1/uploads/{id}", id)).andReturn();
+            String batchStatus = JsonPath.read(batch.getResponse().getContentAsString(), "$.status");
+
+            if (batchStatus.equals("COMPLETED")) {
+                break;
+            }
+
+            Thread.sleep(100);
+        }
+
+        mockMvc.perform(get("/api/v1/uploads/{id}/report", id))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().string("""
+                        "Reference","Description","Error Message"
+                        "112806","Book Peter de Vries","Duplicate reference"
+                        "112806","Book Richard Tyson","Duplicate reference"
+                        """));
+    }
+
+    @Test
+    void uploadJsonFile_shouldReturnGzipReport_whenGzipIsAccepted() throws Exception {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", "records.json", APPLICATION_JSON_VALUE, resource.getInputStream());
+
+        var result = mockMvc.perform(multipart("/api/v1/uploads").file(file).header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn();
+
+        try (var inputStream = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            var content = new String(inputStream.readAllBytes(), UTF_8);
+
+            assertEquals("[{\"reference\":167875,\"description\":\"Toy Greg Alysha\",\"errorMessage\":\"Ending balance did not match\"},{\"reference\":165102,\"description\":\"Book Shevaun Taylor\",\"errorMessage\":\"Ending balance did not match\"}]", content);
+        }
+    }
+
+    @Test
+    void copyAll_shouldInsertInFileOrder_whenReferencesAreNotSorted() {
+        var batchId = jdbcTemplate.queryForObject("insert into batch (status) values ('COMPLETED') returning id", UUID.class);
+        var transactions = List.of(
+                transaction(batchId, 300, "10.00", "-1.00", "9.00"),
+                transaction(batchId, 100, "9.00", "-2.00", "7.00"),
+                transaction(batchId, 300, "7.00", "-3.00", "4.00"),
+                transaction(batchId, 200, "7.00", "-4.00", "3.00"));
+
+        var inserted = transactionRepository.copyAll(transactions);
+
+        assertArrayEquals(new boolean[]{true, true, false, true}, inserted);
+        assertEquals(
+                List.of(300L, 100L, 200L),
+                jdbcTemplate.queryForList("select reference from \"transaction\" where batch_id = ? order by id", Long.class, batchId));
+
+        // The continuity of the next batch starts at the end balance of the last line, not of the highest reference.
+        var endBalances = new HashMap<String, Long>();
+        transactionRepository.forEachLastEndBalance(UUID.randomUUID(), List.of(ACCOUNT_NUMBER), endBalances::put);
+
+        assertEquals(Map.of(ACCOUNT_NUMBER, 300L), endBalances);
+    }
+
+    @Test
+    void findAllSaved_shouldOnlyFindTransactionsWithSameValues() {
+        var batchId = jdbcTemplate.queryForObject("insert into batch (status) values ('COMPLETED') returning id", UUID.class);
+
+        transactionRepository.insertAll(List.of(
+                transaction(batchId, 100, "10.00", "-1.00", "9.00"),
+                transaction(batchId, 200, "9.00", "-2.00", "7.00")));
+
+        var saved = transactionRepository.findAllSaved(List.of(
+                // Same values with another scale, like the service converts the cents.
+                transaction(batchId, 100, "10", "-1", "9"),
+                // The insert of this one was rejected, after which a row with the same reference was saved.
+                transaction(batchId, 200, "9.00", "-2.00", "8.00"),
+                transaction(batchId, 200, "9.00", "-2.00", "7.00"),
+                transaction(batchId, 300, "7.00", "-3.00", "4.00")));
+
+        assertArrayEquals(new boolean[]{true, false, true, false}, saved);
+    }
+
+    private static Transaction transaction(UUID batchId, long reference, String startBalance, String mutation, String endBalance) {
+        return Transaction.builder()
+                .batchId(batchId)
+                .reference(reference)
+                .accountNumber(ACCOUNT_NUMBER)
+                .description("Reference " + reference)
+                .startBalance(new BigDecimal(startBalance))
+                .mutation(new BigDecimal(mutation))
+                .endBalance(new BigDecimal(endBalance))
+                .build();
+    }
 }
@@ -1,8 +1,11 @@
 package nl.surepay.validator.factory;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import nl.surepay.validator.error.exception.StatusException;
 import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.processor.CompressedFileProcessor;
+import nl.surepay.validator.processor.Compression;
 import nl.surepay.validator.processor.FileProcessor;
 import nl.surepay.validator.writer.FileWriter;
 import org.junit.jupiter.api.Test;
@@ -11,6 +14,7 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.IOException;
@@ -19,7 +23,9 @@ import java.util.UUID;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @ExtendWith(SpringExtension.class)
 @Import(FileProcessorFactoryTest.Configuration.class)
@@ -42,6 +48,20 @@ class FileProcessorFactoryTest {
         assertEquals(jsonFileProcessor, json);
     }
 
+    @Test
+    void getProcessor_shouldReturnCompressedProcessor_whenFileIsCompressed() {
+        var csv = assertInstanceOf(CompressedFileProcessor.class, fileProcessorFactory.getProcessor("file 1.csv.gz"));
+        var json = assertInstanceOf(CompressedFileProcessor.class, fileProcessorFactory.getProcessor("file 1.json.zst"));
+
+        assertEquals(csvFileProcessor, csv.delegate());
+        assertEquals(Compression.GZIP, csv.compression());
+        assertEquals("csv", csv.supports());
+        assertEquals(jsonFileProcessor, json.delegate());
+        assertEquals(Compression.ZSTD, json.compression());
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessor("file 1.gz"));
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessor("file 1.txt.gz"));
+    }
+
     @Test
     void getProcessor_shouldThrowError_whenInvalidFile() {
         assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessor("file 1.txt"));
@@ -49,6 +69,42 @@ class FileProcessorFactoryTest {
         assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessor("file 1."));
     }
 
+    @Test
+    void getProcessorByFormat_shouldReturnTheProcessor() {
+        assertEquals(csvFileProcessor, fileProcessorFactory.getProcessorByFormat("CSV"));
+        assertEquals(jsonFileProcessor, fileProcessorFactory.getProcessorByFormat("json"));
+
+        var exception = assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessorByFormat("xml"));
+
+        assertEquals("/query/format", exception.getPointer());
+    }
+
+    @Test
+    void getProcessorByContentType_shouldReturnTheProcessor() {
+        var csv = fileProcessorFactory.getProcessorByContentType("text/csv; charset=UTF-8");
+        var json = fileProcessorFactory.getProcessorByContentType(APPLICATION_JSON_VALUE);
+
+        assertEquals(csvFileProcessor, csv);
+        assertEquals(jsonFileProcessor, json);
+    }
+
+    @Test
+    void getProcessorByContentType_shouldReturnCompressedProcessor_whenContentIsEncoded() {
+        var csv = assertInstanceOf(CompressedFileProcessor.class, fileProcessorFactory.getProcessorByContentType("text/csv", "gzip"));
+
+        assertEquals(csvFileProcessor, csv.delegate());
+        assertEquals(Compression.GZIP, csv.compression());
+        assertEquals(jsonFileProcessor, fileProcessorFactory.getProcessorByContentType(APPLICATION_JSON_VALUE, "identity"));
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessorByContentType("text/csv", "br"));
+    }
+
+    @Test
+    void getProcessorByContentType_shouldThrowError_whenInvalidContentType() {
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessorByContentType("text/plain"));
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessorByContentType("csv"));
+        assertThrows(StatusException.class, () -> fileProcessorFactory.getProcessorByContentType(null));
+    }
+
     @TestConfiguration
     static class Configuration {
         @Bean("csvFileProcessor")
@@ -59,13 +115,18 @@ class FileProcessorFactoryTest {
                     return "csv";
                 }
 
+                @Override
+                public MediaType mediaType() {
+                    return new MediaType("text", "csv");
+                }
+
                 @Override
                 public Stream<RowResult> read(InputStream inputStream) throws IOException {
                     return Stream.empty();
                 }
 
                 @Override
-                public FileWriter createWriter(UUID id, HttpServletResponse response) throws IOException {
+                public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
                     return null;
                 }
             };
@@ -79,13 +140,18 @@ class FileProcessorFactoryTest {
                     return "json";
                 }
 
+                @Override
+                public MediaType mediaType() {
+                    return MediaType.APPLICATION_JSON;
+                }
+
                 @Override
                 public Stream<RowResult> read(InputStream inputStream) throws IOException {
                     return Stream.empty();
                 }
 
                 @Override
-                public FileWriter createWriter(UUID id, HttpServletResponse response) throws IOException {
+                public FileWriter createWriter(UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
                     return null;
                 }
             };
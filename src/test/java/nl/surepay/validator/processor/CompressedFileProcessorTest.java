@@ -0,0 +1,78 @@
+package nl.surepay.validator.processor;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import nl.surepay.validator.model.RowResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class CompressedFileProcessorTest {
+    private static final String CONTENT = "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n";
+
+    @Mock
+    FileProcessor delegate;
+
+    @Test
+    void read_shouldDecompressGzip() throws IOException {
+        var compressed = compress(GZIPOutputStream::new);
+
+        assertEquals(CONTENT, readThrough(Compression.GZIP, compressed));
+    }
+
+    @Test
+    void read_shouldDecompressZstd() throws IOException {
+        var compressed = compress(ZstdOutputStream::new);
+
+        assertEquals(CONTENT, readThrough(Compression.ZSTD, compressed));
+    }
+
+    private String readThrough(Compression compression, byte[] compressed) throws IOException {
+        var content = new StringBuilder();
+
+        when(delegate.read(any(InputStream.class))).thenAnswer(invocation -> {
+            InputStream inputStream = invocation.getArgument(0);
+
+            content.append(new String(inputStream.readAllBytes(), UTF_8));
+
+            return Stream.<RowResult>empty();
+        });
+
+        var processor = new CompressedFileProcessor(delegate, compression);
+
+        try (var stream = processor.read(new ByteArrayInputStream(compressed))) {
+            assertEquals(0, stream.count());
+        }
+
+        return content.toString();
+    }
+
+    private static byte[] compress(Compressor compressor) throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+
+        try (var compressed = compressor.wrap(outputStream)) {
+            compressed.write(CONTENT.getBytes(UTF_8));
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Compressor {
+        OutputStream wrap(OutputStream outputStream) throws IOException;
+    }
+}
@@ -1,18 +1,32 @@
 package nl.surepay.validator.processor;
 
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.config.UploadProperties;
 import nl.surepay.validator.model.RowResult;
 import nl.surepay.validator.writer.CsvFileWriter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
 import org.testcontainers.shaded.org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -21,6 +35,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
 
 @ExtendWith(SpringExtension.class)
+@Import(CsvFileProcessorTest.Configuration.class)
 class CsvFileProcessorTest {
     @SpyBean
     CsvFileProcessor processor;
@@ -34,8 +49,16 @@ class CsvFileProcessorTest {
     void read_shouldStreamResults() throws IOException {
         var fileContent = new ClassPathResource("input/records.csv").getContentAsString(UTF_8);
         var newLineIndex = fileContent.indexOf('\n');
-        // Expected result
-        var expected = fileContent.substring(newLineIndex + 1).replace("+", "");
+        // Expected result, with the balances in cents.
+        var expected = fileContent.substring(newLineIndex + 1)
+                .lines()
+                .map(line -> {
+                    var columns = line.split(",");
+
+                    return "%s,%s,%s,%d,%d,%d\n".formatted(columns[0], columns[1], columns[2], cents(columns[3]),
+                            cents(columns[4]), cents(columns[5]));
+                })
+                .collect(Collectors.joining());
 
         // The actual result
         var stringBuilder = new StringBuilder();
@@ -48,7 +71,7 @@ class CsvFileProcessorTest {
                 var valid = (RowResult.Valid) result;
                 var value = valid.value();
 
-                stringBuilder.append("%d,%s,%s,%s,%s,%s".formatted(
+                stringBuilder.append("%d,%s,%s,%d,%d,%d".formatted(
                         value.reference(), value.accountNumber(), value.description(), value.startBalance(),
                         value.mutation(), value.endBalance()));
                 stringBuilder.append('\n');
@@ -58,20 +81,119 @@ class CsvFileProcessorTest {
         assertEquals(expected, stringBuilder.toString());
     }
 
+    @Test
+    void read_shouldParseChunksInParallelInOrder(@TempDir Path directory) throws IOException {
+        var content = new StringBuilder("Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n");
+
+        for (var i = 1; i <= 500; i++) {
+            switch (i % 7) {
+                // Quoted newlines must not split a record.
+                case 0 -> content.append("%d,NL91RABO0315273637,\"Book\nJohn \"\"Smith\"\"\",1.00,+2.00,3.00\n".formatted(i));
+                case 3 -> content.append("invalid,NL91RABO0315273637,Book John Smith,1.00,+2.00,3.00\n");
+                case 5 -> content.append("%d,NL91RABO0315273637,Book John Smith\n".formatted(i));
+                default -> content.append("%d,NL91RABO0315273637,Book John Smith,1.00,+2.00,3.00\n".formatted(i));
+            }
+        }
+
+        var file = directory.resolve("records.csv");
+
+        Files.writeString(file, content, UTF_8);
+
+        List<RowResult> expected;
+        List<RowResult> actual;
+
+        try (var inputStream = IOUtils.toInputStream(content, UTF_8);
+             var stream = processor.read(inputStream)) {
+            expected = stream.toList();
+        }
+
+        var bytesRead = new AtomicLong();
+
+        try (var stream = processor.read(file, bytesRead::addAndGet)) {
+            actual = stream.toList();
+        }
+
+        assertEquals(500, expected.size());
+        assertEquals(expected, actual);
+        assertEquals(Files.size(file), bytesRead.get());
+    }
+
+    @Test
+    void read_shouldParseChunksInParallelInOrder_whenQuoteIsInsideValue(@TempDir Path directory) throws IOException {
+        var content = new StringBuilder("Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n");
+
+        for (var i = 1; i <= 500; i++) {
+            switch (i % 3) {
+                // A quote that does not start a field is part of the value and does not open a quoted field.
+                case 0 -> content.append("%d,NL91RABO0315273637,TV 5\" screen,1.00,+2.00,3.00\n".formatted(i));
+                case 1 -> content.append("%d,NL91RABO0315273637,\"Book\nJohn Smith\",1.00,+2.00,3.00\n".formatted(i));
+                default -> content.append("%d,NL91RABO0315273637,\"Book \"\"John\"\" Smith\",1.00,+2.00,3.00\n".formatted(i));
+            }
+        }
+
+        var file = directory.resolve("records.csv");
+
+        Files.writeString(file, content, UTF_8);
+
+        List<RowResult> expected;
+        List<RowResult> actual;
+
+        try (var inputStream = IOUtils.toInputStream(content, UTF_8);
+             var stream = processor.read(inputStream)) {
+            expected = stream.toList();
+        }
+
+        try (var stream = processor.read(file)) {
+            actual = stream.toList();
+        }
+
+        assertEquals(500, expected.size());
+        assertEquals("TV 5\" screen", ((RowResult.Valid) expected.get(2)).value().description());
+        assertEquals(expected, actual);
+    }
+
     @Test
     void createWriter_shouldWriteToResponseAndCreateFileWriter() throws IOException {
         var id = UUID.randomUUID();
+        var httpServletRequest = mock(HttpServletRequest.class);
         var httpServletResponse = mock(HttpServletResponse.class);
-        var printWriter = mock(PrintWriter.class);
+        var outputStream = mock(ServletOutputStream.class);
 
-        when(httpServletResponse.getWriter()).thenReturn(printWriter);
+        when(httpServletResponse.getOutputStream()).thenReturn(outputStream);
 
-        try (var writer = processor.createWriter(id, httpServletResponse)) {
+        try (var writer = processor.createWriter(id, httpServletRequest, httpServletResponse)) {
             assertInstanceOf(CsvFileWriter.class, writer);
         }
 
-        verify(httpServletResponse).setContentType("text/csv");
+        verify(httpServletResponse).setContentType("text/csv;charset=UTF-8");
         verify(httpServletResponse).setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.csv".formatted(id));
-        verify(printWriter).write(anyString());
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    private static long cents(String value) {
+        return new BigDecimal(value).movePointRight(2).longValueExact();
+    }
+
+    @TestConfiguration
+    static class Configuration {
+        @Bean
+        UploadProperties uploadProperties() {
+            // Parse every file in parallel, using small chunks to get many of them.
+            return new UploadProperties(
+                    1000,
+                    2,
+                    new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                    new UploadProperties.Async(1, 1),
+                    new UploadProperties.Parallel(DataSize.ofBytes(0), DataSize.ofBytes(256), 4),
+                    new UploadProperties.Resumable(Path.of("uploads")),
+                    new UploadProperties.CrossBatch(1000, 0.01),
+                    new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                    new UploadProperties.Database(2));
+        }
+
+        @Bean(destroyMethod = "shutdown")
+        ForkJoinPool parsePool() {
+            return new ForkJoinPool(4);
+        }
     }
 }
@@ -0,0 +1,88 @@
+package nl.surepay.validator.processor;
+
+import nl.surepay.validator.model.RowValue;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTokenizerTest {
+    @Test
+    void next_shouldReadQuotedFields() throws IOException {
+        var content = "1,NL91RABO0315273637,\"Book, \"\"John\"\"\nSmith\",21.6,-41.83,-20.23\r\n";
+
+        try (var tokenizer = new CsvTokenizer(content.getBytes(UTF_8))) {
+            assertTrue(tokenizer.next());
+
+            var expected = new RowValue(1, "NL91RABO0315273637", "Book, \"John\"\nSmith", 2160, -4183, -2023);
+
+            assertEquals(expected, tokenizer.value());
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    @Test
+    void next_shouldReadAcrossBufferRefills() throws IOException {
+        var content = "1,NL91RABO0315273637,\"Book \"\"John\"\"\",1.00,+2.00,3.00\n2,NL27SNSB0917829871,Toy,4,5,9";
+
+        // Return a single byte per read, so every field and quote is split over refills.
+        var inputStream = new ByteArrayInputStream(content.getBytes(UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        try (var tokenizer = new CsvTokenizer((InputStream) inputStream)) {
+            assertTrue(tokenizer.next());
+            assertEquals("Book \"John\"", tokenizer.value().description());
+            assertTrue(tokenizer.next());
+            assertEquals(2, tokenizer.value().reference());
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    @Test
+    void value_shouldValidateRecord() throws IOException {
+        var content = """
+                1,NL91RABO0315273637,Book
+                invalid,NL91RABO0315273637,Book,1.00,+2.00,3.00
+                9223372036854775808,NL91RABO0315273637,Book,1.00,+2.00,3.00
+                1,NL91RABO0315273637,Book,one,+2.00,3.00
+                1,NL91RABO0315273637,Book,1.00,,3.00
+                1,NL91RABO0315273637,Book,1.00,+2.00,3,00
+                1,NL91RABO0315273637,Book,1.001,+2.00,3.00
+                1,NL91RABO0315273637,Book,1.00,+2.00,10000000000
+                1,NL91RABO0315273637,Book,1e,+2.00,3.00
+                1,NL91RABO0315273637,Book,1e-3,+2.00,3.00
+                1,NL91RABO0315273637,"Book,1.00,+2.00,3.00
+                """;
+
+        try (var tokenizer = new CsvTokenizer(content.getBytes(UTF_8))) {
+            assertError(tokenizer, "Invalid number of columns");
+            assertError(tokenizer, "Reference is not a valid number");
+            assertError(tokenizer, "Reference is not a valid number");
+            assertError(tokenizer, "Start balance is not a valid number");
+            assertError(tokenizer, "Mutation is not a valid number");
+            assertError(tokenizer, "Invalid number of columns");
+            assertError(tokenizer, "Start balance has more than 2 decimals");
+            assertError(tokenizer, "End balance is too large");
+            assertError(tokenizer, "Start balance is not a valid number");
+            assertError(tokenizer, "Start balance has more than 2 decimals");
+            assertError(tokenizer, "Un-terminated quoted field at end of CSV line");
+            assertFalse(tokenizer.next());
+        }
+    }
+
+    private static void assertError(CsvTokenizer tokenizer, String message) throws IOException {
+        assertTrue(tokenizer.next());
+
+        var exception = assertThrows(IOException.class, tokenizer::value);
+
+        assertEquals(message, exception.getMessage());
+    }
+}
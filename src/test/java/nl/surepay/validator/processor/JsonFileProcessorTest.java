@@ -3,19 +3,32 @@ package nl.surepay.validator.processor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.config.UploadProperties;
 import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
 import nl.surepay.validator.writer.JsonFileWriter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.unit.DataSize;
 import org.testcontainers.shaded.org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -25,6 +38,7 @@ import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @JsonTest
+@Import(JsonFileProcessorTest.Configuration.class)
 class JsonFileProcessorTest {
     @Autowired
     ObjectMapper objectMapper;
@@ -46,9 +60,15 @@ class JsonFileProcessorTest {
                 .replace("+", "");
         var expected = objectMapper.readTree(fileContent);
         expected.forEach(jsonNode -> {
+            var objectNode = (ObjectNode) jsonNode;
             var longValue = jsonNode.get("reference").asLong();
 
-            ((ObjectNode) jsonNode).put("reference", longValue);
+            objectNode.put("reference", longValue);
+
+            // Balances are in cents.
+            for (var field : List.of("startBalance", "mutation", "endBalance")) {
+                objectNode.put(field, jsonNode.get(field).decimalValue().movePointRight(2).longValueExact());
+            }
         });
 
         final var actual = objectMapper.createArrayNode();
@@ -68,20 +88,161 @@ class JsonFileProcessorTest {
         assertEquals(expected.toPrettyString(), actual.toPrettyString());
     }
 
+    @Test
+    void read_shouldContinueAfterInvalidObject() throws IOException {
+        var fileContent = """
+                [
+                  {"reference": "invalid", "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3},
+                  {"reference": "2", "accountNumber": {"iban": "NL91RABO0315273637"}, "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3},
+                  {"reference": "3", "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3}
+                ]
+                """;
+
+        try (var inputStream = IOUtils.toInputStream(fileContent, UTF_8);
+             var stream = processor.read(inputStream)) {
+            var results = stream.toList();
+
+            assertEquals(3, results.size());
+            assertEquals(new RowResult.Invalid("Reference is not a valid number", 1), results.get(0));
+            assertEquals(new RowResult.Invalid("Account number is missing", 2), results.get(1));
+            assertEquals(3, ((RowResult.Valid) results.get(2)).value().reference());
+        }
+    }
+
+    @Test
+    void read_shouldParseNumbersAsWritten() throws IOException {
+        var fileContent = """
+                [
+                  {"reference": 1, "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": "1.5", "mutation": -0.25, "endBalance": 1.25},
+                  {"reference": 2, "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 1e2, "endBalance": 3},
+                  {"reference": 3, "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": null, "mutation": 2, "endBalance": 3},
+                  {"reference": 99999999999999999999, "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3}
+                ]
+                """;
+
+        try (var inputStream = IOUtils.toInputStream(fileContent, UTF_8);
+             var stream = processor.read(inputStream)) {
+            var results = stream.toList();
+
+            assertEquals(4, results.size());
+            assertEquals(new RowResult.Valid(new RowValue(1, "NL91RABO0315273637", "Book", 150, -25, 125)),
+                    results.get(0));
+            assertEquals(new RowResult.Valid(new RowValue(2, "NL91RABO0315273637", "Book", 100, 10000, 300)),
+                    results.get(1));
+            assertEquals(new RowResult.Invalid("Start balance is not a valid number", 3), results.get(2));
+            assertEquals(new RowResult.Invalid("Reference is not a valid number", 4), results.get(3));
+        }
+    }
+
+    @Test
+    void read_shouldParseChunksInParallelInOrder(@TempDir Path directory) throws IOException {
+        var content = new StringBuilder("[\n");
+
+        for (var i = 1; i <= 500; i++) {
+            if (i > 1) {
+                content.append(",\n");
+            }
+
+            switch (i % 7) {
+                // Braces, brackets, commas and escaped quotes in a string must not end an object.
+                case 0 -> content.append("""
+                        {"reference": "%d", "accountNumber": "NL91RABO0315273637", "description": "Book }], {[ \\"John\\"", \
+                        "startBalance": 1, "mutation": 2, "endBalance": 3}""".formatted(i));
+                case 3 -> content.append("""
+                        {"reference": "invalid", "accountNumber": "NL91RABO0315273637", "description": "Book", \
+                        "startBalance": 1, "mutation": 2, "endBalance": 3}""");
+                case 5 -> content.append("""
+                        {"reference": "%d", "accountNumber": {"iban": ["NL91RABO0315273637"]}, "description": "Book", \
+                        "startBalance": 1, "mutation": 2, "endBalance": 3}""".formatted(i));
+                default -> content.append("""
+                        {"reference": "%d", "accountNumber": "NL91RABO0315273637", "description": "Book", \
+                        "startBalance": 1, "mutation": 2, "endBalance": 3}""".formatted(i));
+            }
+        }
+
+        content.append("\n]\n");
+
+        var file = directory.resolve("records.json");
+
+        Files.writeString(file, content, UTF_8);
+
+        List<RowResult> expected;
+        List<RowResult> actual;
+
+        try (var inputStream = IOUtils.toInputStream(content, UTF_8);
+             var stream = processor.read(inputStream)) {
+            expected = stream.toList();
+        }
+
+        var bytesRead = new AtomicLong();
+
+        try (var stream = processor.read(file, bytesRead::addAndGet)) {
+            actual = stream.toList();
+        }
+
+        assertEquals(500, expected.size());
+        assertEquals(expected, actual);
+        assertEquals(Files.size(file), bytesRead.get());
+    }
+
+    @Test
+    void read_shouldStopAtFirstElementThatIsNotAnObject(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.json");
+
+        Files.writeString(file, """
+                [
+                  {"reference": "1", "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3},
+                  2,
+                  {"reference": "3", "accountNumber": "NL91RABO0315273637", "description": "Book", "startBalance": 1, "mutation": 2, "endBalance": 3}
+                ]
+                """, UTF_8);
+
+        try (var stream = processor.read(file)) {
+            var results = stream.toList();
+
+            assertEquals(1, results.size());
+            assertEquals(1, ((RowResult.Valid) results.getFirst()).value().reference());
+        }
+    }
+
     @Test
     void createWriter_shouldWriteToResponseAndCreateFileWriter() throws IOException {
         var id = UUID.randomUUID();
+        var httpServletRequest = mock(HttpServletRequest.class);
         var httpServletResponse = mock(HttpServletResponse.class);
-        var printWriter = mock(PrintWriter.class);
+        var outputStream = mock(ServletOutputStream.class);
 
-        when(httpServletResponse.getWriter()).thenReturn(printWriter);
+        when(httpServletResponse.getOutputStream()).thenReturn(outputStream);
 
-        try (var writer = processor.createWriter(id, httpServletResponse)) {
+        try (var writer = processor.createWriter(id, httpServletRequest, httpServletResponse)) {
             assertInstanceOf(JsonFileWriter.class, writer);
         }
 
         verify(httpServletResponse).setContentType(APPLICATION_JSON_VALUE);
         verify(httpServletResponse).setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.json".formatted(id));
-        verify(printWriter, times(2)).write(any(char[].class), anyInt(), anyInt());
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @TestConfiguration
+    static class Configuration {
+        @Bean
+        UploadProperties uploadProperties() {
+            // Parse every file in parallel, using small chunks to get many of them.
+            return new UploadProperties(
+                    1000,
+                    2,
+                    new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                    new UploadProperties.Async(1, 1),
+                    new UploadProperties.Parallel(DataSize.ofBytes(0), DataSize.ofBytes(256), 4),
+                    new UploadProperties.Resumable(Path.of("uploads")),
+                    new UploadProperties.CrossBatch(1000, 0.01),
+                    new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                    new UploadProperties.Database(2));
+        }
+
+        @Bean(destroyMethod = "shutdown")
+        ForkJoinPool parsePool() {
+            return new ForkJoinPool(4);
+        }
     }
 }
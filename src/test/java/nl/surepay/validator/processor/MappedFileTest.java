@@ -0,0 +1,58 @@
+package nl.surepay.validator.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedFileTest {
+    @Test
+    void slice_shouldMapAcrossWindows(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.csv");
+
+        Files.writeString(file, "0123456789abcdefghij", UTF_8);
+
+        try (var mappedFile = new MappedFile(file, 8)) {
+            assertEquals(20, mappedFile.size());
+            assertEquals('0', mappedFile.get(0));
+            assertEquals('9', mappedFile.get(9));
+
+            // Starts in the second window and ends in the third.
+            assertEquals("6789abcdef", UTF_8.decode(mappedFile.slice(6, 16)).toString());
+            // Larger than a window.
+            assertEquals("0123456789abcdefghij", UTF_8.decode(mappedFile.slice(0, 20)).toString());
+            assertEquals('j', mappedFile.get(19));
+        }
+    }
+
+    @Test
+    void next_shouldSplitRecordsAcrossWindows(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.csv");
+        var content = new StringBuilder();
+
+        for (var i = 1; i <= 100; i++) {
+            content.append("%d,NL91RABO0315273637,\"Book,\nJohn\",1,2,3\n".formatted(i));
+        }
+
+        Files.writeString(file, content, UTF_8);
+
+        var references = 0L;
+
+        try (var chunkReader = new CsvChunkReader(new MappedFile(file, 100), 64)) {
+            while (chunkReader.hasNext()) {
+                try (var tokenizer = new CsvTokenizer(chunkReader.next())) {
+                    while (tokenizer.next()) {
+                        references += tokenizer.value().reference();
+                    }
+                }
+            }
+        }
+
+        assertEquals(5050, references);
+    }
+}
@@ -0,0 +1,260 @@
+package nl.surepay.validator.processor;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.writer.ParquetFileWriter;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Types;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+
+@ExtendWith(SpringExtension.class)
+@Import(ParquetFileProcessorTest.Configuration.class)
+class ParquetFileProcessorTest {
+    // Balances of every physical type a decimal can have, and as a string.
+    private static final MessageType SCHEMA = Types.buildMessage()
+            .required(INT64).named("reference")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("accountNumber")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("description")
+            .optional(INT64).as(LogicalTypeAnnotation.decimalType(2, 12)).named("startBalance")
+            .optional(INT32).as(LogicalTypeAnnotation.decimalType(1, 9)).named("mutation")
+            .optional(BINARY).as(LogicalTypeAnnotation.decimalType(3, 20)).named("endBalance")
+            .optional(BINARY).as(LogicalTypeAnnotation.stringType()).named("comment")
+            .named("statement");
+
+    @SpyBean
+    ParquetFileProcessor processor;
+
+    @Test
+    void supports_shouldReturnParquet() {
+        assertEquals("parquet", processor.supports());
+    }
+
+    @Test
+    void read_shouldDecodeColumnsInBatches(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.parquet");
+
+        // More rows than a batch, so the columns are read over several batches.
+        write(file, SCHEMA, groups -> {
+            for (var i = 1; i <= 5; i++) {
+                groups.accept(row(i, "NL91RABO0315273637", "Book " + i, 2160, -418, -20230));
+            }
+        });
+
+        var bytesRead = new AtomicLong();
+
+        try (var stream = processor.read(file, bytesRead::addAndGet)) {
+            var results = stream.toList();
+
+            assertEquals(5, results.size());
+            // The row groups without the footer.
+            assertTrue(bytesRead.get() > 0 && bytesRead.get() < Files.size(file));
+
+            for (var i = 0; i < 5; i++) {
+                var expected = new RowValue(i + 1, "NL91RABO0315273637", "Book " + (i + 1), 2160, -4180, -2023);
+
+                assertEquals(new RowResult.Valid(expected), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    void read_shouldReportInvalidRows(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.parquet");
+
+        write(file, SCHEMA, groups -> {
+            groups.accept(row(1, "NL91RABO0315273637", "Book", 100, 10, 2001));
+            groups.accept(row(2, "NL91RABO0315273637", null, 100, 10, 2000));
+            groups.accept(row(3, null, "Book", 100_000_000_000_000L, 10, 2000));
+            groups.accept(row(0, "NL91RABO0315273637", "Book", 100, 10, 2000));
+        });
+
+        try (var stream = processor.read(file)) {
+            var results = stream.toList();
+
+            assertEquals(4, results.size());
+            assertEquals(new RowResult.Invalid("End balance has more than 2 decimals", 1), results.get(0));
+            assertEquals(new RowResult.Invalid("Description is missing", 2), results.get(1));
+            // An invalid value comes before a missing one.
+            assertEquals(new RowResult.Invalid("Start balance is too large", 3), results.get(2));
+            assertEquals(new RowResult.Invalid("Reference is missing", 4), results.get(3));
+        }
+    }
+
+    @Test
+    void read_shouldParseBalancesThatAreStrings(@TempDir Path directory) throws IOException {
+        var schema = Types.buildMessage()
+                .required(INT32).named("reference")
+                .required(BINARY).as(LogicalTypeAnnotation.stringType()).named("accountNumber")
+                .required(BINARY).as(LogicalTypeAnnotation.stringType()).named("description")
+                .required(BINARY).as(LogicalTypeAnnotation.stringType()).named("startBalance")
+                .required(BINARY).as(LogicalTypeAnnotation.stringType()).named("mutation")
+                .required(BINARY).as(LogicalTypeAnnotation.stringType()).named("endBalance")
+                .named("statement");
+        var file = directory.resolve("records.parquet");
+        var factory = new SimpleGroupFactory(schema);
+
+        write(file, schema, groups -> {
+            groups.accept(factory.newGroup()
+                    .append("reference", 1)
+                    .append("accountNumber", "NL91RABO0315273637")
+                    .append("description", "Book")
+                    .append("startBalance", "21.6")
+                    .append("mutation", "+41.83")
+                    .append("endBalance", "one"));
+        });
+
+        try (var stream = processor.read(file)) {
+            assertEquals(List.of(new RowResult.Invalid("End balance is not a valid number", 1)), stream.toList());
+        }
+    }
+
+    @Test
+    void read_shouldReadFromInputStream(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.parquet");
+
+        write(file, SCHEMA, groups -> groups.accept(row(1, "NL91RABO0315273637", "Book", 100, 10, 2000)));
+
+        try (var stream = processor.read(Files.newInputStream(file))) {
+            assertEquals(List.of(new RowResult.Valid(new RowValue(1, "NL91RABO0315273637", "Book", 100, 100, 200))),
+                    stream.toList());
+        }
+    }
+
+    @Test
+    void read_shouldThrow_whenColumnIsMissing(@TempDir Path directory) throws IOException {
+        var schema = Types.buildMessage()
+                .required(INT64).named("reference")
+                .named("statement");
+        var file = directory.resolve("records.parquet");
+        var factory = new SimpleGroupFactory(schema);
+
+        write(file, schema, groups -> groups.accept(factory.newGroup().append("reference", 1L)));
+
+        var exception = assertThrows(StatusException.class, () -> processor.read(file));
+
+        assertEquals("validation.parquet.column", exception.getCode());
+    }
+
+    @Test
+    void read_shouldThrow_whenFileIsNotParquet(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("records.parquet");
+
+        Files.writeString(file, "Reference,AccountNumber,Description,Start Balance,Mutation,End Balance\n");
+
+        var exception = assertThrows(StatusException.class, () -> processor.read(file));
+
+        assertEquals("validation.parquet.invalid", exception.getCode());
+    }
+
+    @Test
+    void createWriter_shouldWriteToResponseAndCreateFileWriter() throws IOException {
+        var id = UUID.randomUUID();
+        var httpServletRequest = mock(HttpServletRequest.class);
+        var httpServletResponse = mock(HttpServletResponse.class);
+        var outputStream = mock(ServletOutputStream.class);
+
+        when(httpServletResponse.getOutputStream()).thenReturn(outputStream);
+
+        try (var writer = processor.createWriter(id, httpServletRequest, httpServletResponse)) {
+            assertInstanceOf(ParquetFileWriter.class, writer);
+        }
+
+        verify(httpServletResponse).setContentType("application/vnd.apache.parquet");
+        verify(httpServletResponse).setHeader(CONTENT_DISPOSITION, "attachment; filename=upload-report-%s.parquet".formatted(id));
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    private static Group row(
+            long reference,
+            String accountNumber,
+            String description,
+            long startBalance,
+            int mutation,
+            long endBalance
+    ) {
+        var group = new SimpleGroupFactory(SCHEMA).newGroup()
+                .append("reference", reference)
+                .append("startBalance", startBalance)
+                .append("mutation", mutation)
+                .append("endBalance", Binary.fromConstantByteArray(BigInteger.valueOf(endBalance).toByteArray()))
+                .append("comment", "Not read");
+
+        if (accountNumber != null) {
+            group.append("accountNumber", accountNumber);
+        }
+
+        if (description != null) {
+            group.append("description", description);
+        }
+
+        return group;
+    }
+
+    private static void write(Path file, MessageType schema, Consumer<Consumer<Group>> rows) throws IOException {
+        try (var writer = ExampleParquetWriter.builder(new LocalOutputFile(file)).withType(schema).build()) {
+            rows.accept(group -> {
+                try {
+                    writer.write(group);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+    }
+
+    @TestConfiguration
+    static class Configuration {
+        @Bean
+        UploadProperties uploadProperties() {
+            // Small batches, to read the columns over several of them.
+            return new UploadProperties(
+                    2,
+                    2,
+                    new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                    new UploadProperties.Async(1, 1),
+                    new UploadProperties.Parallel(DataSize.ofMegabytes(64), DataSize.ofMegabytes(8), 4),
+                    new UploadProperties.Resumable(Path.of("uploads")),
+                    new UploadProperties.CrossBatch(1000, 0.01),
+                    new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                    new UploadProperties.Database(2));
+        }
+    }
+}
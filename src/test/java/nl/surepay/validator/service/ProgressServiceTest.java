@@ -0,0 +1,151 @@
+package nl.surepay.validator.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.model.Progress;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.processor.JsonFileProcessor;
+import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.util.ContentHash;
+import nl.surepay.validator.writer.JsonFileWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@ExtendWith(SpringExtension.class)
+@Import(UploadTestConfiguration.class)
+class ProgressServiceTest {
+    @MockBean
+    BatchRepository batchRepository;
+
+    @MockBean
+    FileProcessorFactory fileProcessorFactory;
+
+    @MockBean
+    TransactionRepository transactionRepository;
+
+    @MockBean
+    ReportRepository reportRepository;
+
+    @MockBean
+    TaskExecutor uploadExecutor;
+
+    @MockBean
+    AccountReferenceIndex accountReferenceIndex;
+
+    @Mock
+    JsonFileProcessor jsonFileProcessor;
+
+    @Mock
+    JsonFileWriter jsonFileWriter;
+
+    @Mock
+    HttpServletRequest httpServletRequest;
+
+    @Mock
+    HttpServletResponse httpServletResponse;
+
+    @SpyBean
+    UploadService uploadService;
+
+    @SpyBean
+    ProgressService progressService;
+
+    @Test
+    void getProgress_shouldCountRows_whileBatchIsRunning() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var valid = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+        var mismatch = new RowValue(2, "IBAN", "Test transaction", 100, 200, 400);
+        var progress = new AtomicReference<Progress>();
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class)))
+                .thenReturn(Stream.of(new RowResult.Valid(valid), new RowResult.Valid(mismatch)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(anyList())).thenReturn(new boolean[]{true, true});
+        doAnswer(invocation -> {
+            progress.set(progressService.getProgress(newBatch.getId()));
+
+            return null;
+        }).when(jsonFileWriter).write(any());
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        assertEquals(Batch.Status.RUNNING, progress.get().status());
+        assertEquals(2, progress.get().rows());
+        assertEquals(1, progress.get().validRows());
+        assertEquals(1, progress.get().invalidRows());
+        assertEquals(file.getSize(), progress.get().length());
+        verify(batchRepository, never()).findById(newBatch.getId());
+    }
+
+    @Test
+    void getProgress_shouldReturnCheckpoint_whenBatchIsNotRunning() {
+        var batch = resumableBatch(Batch.Status.FAILED, 100);
+        batch.setProcessedRows(5000);
+        batch.setInvalidRows(20);
+        batch.setDuplicateRows(3);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+
+        var progress = progressService.getProgress(batch.getId());
+
+        assertEquals(Batch.Status.FAILED, progress.status());
+        assertEquals(5000, progress.rows());
+        assertEquals(4977, progress.validRows());
+        assertEquals(20, progress.invalidRows());
+        assertEquals(3, progress.duplicateRows());
+        assertEquals(100L, progress.length());
+        assertNull(progress.bytesRead());
+    }
+
+    private static Batch runningBatch(MockMultipartFile file) throws IOException {
+        var batch = new Batch();
+        batch.setContentHash(ContentHash.of(file.getInputStream()));
+
+        return batch;
+    }
+
+    private static Batch resumableBatch(Batch.Status status, long receivedBytes) {
+        var batch = new Batch();
+        batch.setId(UUID.randomUUID());
+        batch.setStatus(status);
+        batch.setFileType("json");
+        batch.setFileName("records.json");
+        batch.setUploadLength(100L);
+        batch.setReceivedBytes(receivedBytes);
+
+        return batch;
+    }
+}
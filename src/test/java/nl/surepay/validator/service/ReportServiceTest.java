@@ -0,0 +1,128 @@
+package nl.surepay.validator.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.processor.JsonFileProcessor;
+import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.writer.JsonFileWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@Import(UploadTestConfiguration.class)
+class ReportServiceTest {
+    @MockBean
+    BatchRepository batchRepository;
+
+    @MockBean
+    FileProcessorFactory fileProcessorFactory;
+
+    @MockBean
+    TransactionRepository transactionRepository;
+
+    @MockBean
+    ReportRepository reportRepository;
+
+    @MockBean
+    AccountReferenceIndex accountReferenceIndex;
+
+    @Mock
+    JsonFileProcessor jsonFileProcessor;
+
+    @Mock
+    JsonFileWriter jsonFileWriter;
+
+    @Mock
+    HttpServletRequest httpServletRequest;
+
+    @Mock
+    HttpServletResponse httpServletResponse;
+
+    @SpyBean
+    ReportService reportService;
+
+    @Test
+    void report_shouldWriteStoredReport() throws IOException {
+        var batch = new Batch();
+        batch.setId(UUID.randomUUID());
+        batch.setStatus(Batch.Status.COMPLETED);
+        batch.setFileType("json");
+
+        var report = new Report(1L, "Test transaction", "Ending balance did not match");
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(fileProcessorFactory.getProcessorByExtension("json")).thenReturn(jsonFileProcessor);
+        when(jsonFileProcessor.createWriter(batch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(reportRepository.findAllByBatchId(batch.getId(), 0, 1000))
+                .thenReturn(new ReportRepository.Page(List.of(report), 0));
+
+        reportService.report(batch.getId(), null, httpServletRequest, httpServletResponse);
+
+        verify(jsonFileWriter).write(report);
+        verify(jsonFileWriter).close();
+    }
+
+    @Test
+    void report_shouldReadPagesInRequestedFormat() throws IOException {
+        var batch = new Batch();
+        batch.setId(UUID.randomUUID());
+        batch.setStatus(Batch.Status.COMPLETED);
+        batch.setFileType("csv");
+
+        var first = new Report(1L, "Test transaction", "Ending balance did not match");
+        var last = new Report(2L, "Test transaction", "Duplicate reference");
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(fileProcessorFactory.getProcessorByFormat("json")).thenReturn(jsonFileProcessor);
+        when(jsonFileProcessor.createWriter(batch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        // The lines of the first page have a gap, so the second page starts after its last line and not at 1000.
+        when(reportRepository.findAllByBatchId(batch.getId(), 0, 1000))
+                .thenReturn(new ReportRepository.Page(Collections.nCopies(1000, first), 1004));
+        when(reportRepository.findAllByBatchId(batch.getId(), 1005, 1000))
+                .thenReturn(new ReportRepository.Page(List.of(last), 1005));
+
+        reportService.report(batch.getId(), "json", httpServletRequest, httpServletResponse);
+
+        verify(jsonFileWriter, times(1000)).write(first);
+        verify(jsonFileWriter).write(last);
+        verify(reportRepository, times(2)).findAllByBatchId(eq(batch.getId()), anyLong(), eq(1000));
+        verify(fileProcessorFactory, never()).getProcessorByExtension(any());
+    }
+
+    @Test
+    void report_shouldThrowError_whenBatchIsNotCompleted() {
+        var batch = new Batch();
+        batch.setId(UUID.randomUUID());
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+
+        var exception = assertThrows(StatusException.class, () -> reportService.report(batch.getId(), null, httpServletRequest, httpServletResponse));
+
+        assertEquals("error.batch.notCompleted", exception.getCode());
+        verifyNoInteractions(reportRepository);
+    }
+}
@@ -0,0 +1,242 @@
+package nl.surepay.validator.service;
+
+import nl.surepay.validator.entity.Batch;
+import nl.surepay.validator.entity.Transaction;
+import nl.surepay.validator.error.exception.StatusException;
+import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.model.RowResult;
+import nl.surepay.validator.model.RowValue;
+import nl.surepay.validator.processor.JsonFileProcessor;
+import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.util.Cents;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@Import(UploadTestConfiguration.class)
+class ResumableUploadServiceTest {
+    @MockBean
+    BatchRepository batchRepository;
+
+    @MockBean
+    FileProcessorFactory fileProcessorFactory;
+
+    @MockBean
+    TransactionRepository transactionRepository;
+
+    @MockBean
+    ReportRepository reportRepository;
+
+    @MockBean
+    TaskExecutor uploadExecutor;
+
+    @MockBean
+    UploadStorage uploadStorage;
+
+    @MockBean
+    AccountReferenceIndex accountReferenceIndex;
+
+    @Mock
+    JsonFileProcessor jsonFileProcessor;
+
+    @SpyBean
+    ResumableUploadService resumableUploadService;
+
+    @Test
+    void uploadChunk_shouldThrowError_whenChunkDoesNotStartAtReceivedBytes() throws IOException {
+        var batch = resumableBatch(Batch.Status.UPLOADING, 10);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+
+        var inputStream = new ByteArrayInputStream(new byte[10]);
+        var exception = assertThrows(
+                StatusException.class,
+                () -> resumableUploadService.uploadChunk(batch.getId(), "bytes 20-29/100", inputStream));
+
+        assertEquals("error.upload.offset", exception.getCode());
+        assertEquals(10L, exception.getArgs()[0]);
+        verify(uploadStorage, never()).write(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void uploadChunk_shouldThrowError_whenContentRangeIsInvalid() {
+        var batch = resumableBatch(Batch.Status.UPLOADING, 0);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+
+        var inputStream = new ByteArrayInputStream(new byte[10]);
+
+        for (var contentRange : List.of("bytes 0-9/50", "bytes 9-0/100", "bytes 0-9/*", "0-9/100")) {
+            var exception = assertThrows(
+                    StatusException.class,
+                    () -> resumableUploadService.uploadChunk(batch.getId(), contentRange, inputStream));
+
+            assertEquals("validation.contentRange.invalid", exception.getCode());
+        }
+    }
+
+    @Test
+    void uploadChunk_shouldQueueBatch_whenLastChunkIsStored() throws IOException {
+        var batch = resumableBatch(Batch.Status.UPLOADING, 60);
+        var inputStream = new ByteArrayInputStream(new byte[40]);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(uploadStorage.write(batch.getId(), 60, 40, inputStream)).thenReturn(100L);
+
+        var result = resumableUploadService.uploadChunk(batch.getId(), "bytes 60-99/100", inputStream);
+
+        assertEquals(100, result.getReceivedBytes());
+        assertEquals(Batch.Status.QUEUED, result.getStatus());
+        verify(uploadExecutor).execute(any());
+    }
+
+    @Test
+    void resume_shouldContinueAfterCheckpoint(@TempDir Path directory) throws IOException {
+        var batch = resumableBatch(Batch.Status.FAILED, 100);
+        batch.setProcessedRows(2);
+        batch.setReportLines(1);
+
+        var first = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+        var third = new RowValue(3, "IBAN", "Test transaction", 100, 200, 300);
+        var saved = transaction(batch.getId(), first);
+        var transaction = transaction(batch.getId(), third);
+        var report = new Report(first.reference(), first.description(), "Duplicate reference");
+        var task = ArgumentCaptor.forClass(Runnable.class);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(uploadStorage.exists(batch.getId())).thenReturn(true);
+        when(uploadStorage.path(batch.getId())).thenReturn(Files.writeString(directory.resolve("upload"), "content"));
+        when(fileProcessorFactory.getProcessor("records.json")).thenReturn(jsonFileProcessor);
+        when(jsonFileProcessor.read(any(Path.class), any())).thenReturn(Stream.of(
+                new RowResult.Valid(first),
+                new RowResult.Invalid("Reference is not a valid number", 2),
+                new RowResult.Valid(first),
+                new RowResult.Valid(third)));
+        when(transactionRepository.findAllSaved(List.of(saved))).thenReturn(new boolean[]{true});
+        // The third transaction was saved after the checkpoint, before the batch failed.
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{false});
+
+        resumableUploadService.resume(batch.getId());
+
+        verify(uploadExecutor).execute(task.capture());
+
+        task.getValue().run();
+
+        verify(transactionRepository).findAllSaved(List.of(saved));
+        verify(transactionRepository).insertAll(List.of(transaction));
+        verifyNoMoreInteractions(transactionRepository);
+        verify(reportRepository).insertAll(batch.getId(), 1, List.of(report));
+        verify(uploadStorage).delete(batch.getId());
+        assertEquals(Batch.Status.COMPLETED, batch.getStatus());
+        assertEquals(4, batch.getProcessedRows());
+        assertEquals(0, batch.getInvalidRows());
+        assertEquals(1, batch.getDuplicateRows());
+        assertEquals(2, batch.getReportLines());
+    }
+
+    @Test
+    void resume_shouldNotRestoreRowsThatWereNotSaved(@TempDir Path directory) throws IOException {
+        var batch = resumableBatch(Batch.Status.FAILED, 100);
+        batch.setContinuity(Continuity.BATCH);
+        batch.setProcessedRows(2);
+        batch.setInvalidRows(1);
+        batch.setReportLines(1);
+
+        // The first row was not saved before the checkpoint, so neither its reference nor its end balance counts.
+        var first = new RowValue(1, "IBAN", "Test transaction", 100, 200, 900);
+        var third = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+        var failed = transaction(batch.getId(), first);
+        var transaction = transaction(batch.getId(), third);
+        var task = ArgumentCaptor.forClass(Runnable.class);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(uploadStorage.exists(batch.getId())).thenReturn(true);
+        when(uploadStorage.path(batch.getId())).thenReturn(Files.writeString(directory.resolve("upload"), "content"));
+        when(fileProcessorFactory.getProcessor("records.json")).thenReturn(jsonFileProcessor);
+        when(jsonFileProcessor.read(any(Path.class), any())).thenReturn(Stream.of(
+                new RowResult.Valid(first),
+                new RowResult.Invalid("Reference is not a valid number", 2),
+                new RowResult.Valid(third)));
+        when(transactionRepository.findAllSaved(List.of(failed))).thenReturn(new boolean[]{false});
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{true});
+
+        resumableUploadService.resume(batch.getId());
+
+        verify(uploadExecutor).execute(task.capture());
+
+        task.getValue().run();
+
+        verify(transactionRepository).findAllSaved(List.of(failed));
+        verify(transactionRepository).insertAll(List.of(transaction));
+        verifyNoMoreInteractions(transactionRepository);
+        verifyNoInteractions(reportRepository);
+        assertEquals(Batch.Status.COMPLETED, batch.getStatus());
+        assertEquals(3, batch.getProcessedRows());
+        assertEquals(1, batch.getInvalidRows());
+        assertEquals(0, batch.getDuplicateRows());
+        assertEquals(1, batch.getReportLines());
+    }
+
+    @Test
+    void resume_shouldThrowError_whenUploadIsNotComplete() {
+        var batch = resumableBatch(Batch.Status.UPLOADING, 10);
+
+        when(batchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+
+        var exception = assertThrows(StatusException.class, () -> resumableUploadService.resume(batch.getId()));
+
+        assertEquals("error.upload.notResumable", exception.getCode());
+        verifyNoInteractions(uploadExecutor);
+    }
+
+    private static Batch resumableBatch(Batch.Status status, long receivedBytes) {
+        var batch = new Batch();
+        batch.setId(UUID.randomUUID());
+        batch.setStatus(status);
+        batch.setFileType("json");
+        batch.setFileName("records.json");
+        batch.setUploadLength(100L);
+        batch.setReceivedBytes(receivedBytes);
+
+        return batch;
+    }
+
+    private static Transaction transaction(UUID batchId, RowValue value) {
+        return Transaction.builder()
+                .batchId(batchId)
+                .reference(value.reference())
+                .accountNumber(value.accountNumber())
+                .description(value.description())
+                .startBalance(Cents.toBigDecimal(value.startBalance()))
+                .mutation(Cents.toBigDecimal(value.mutation()))
+                .endBalance(Cents.toBigDecimal(value.endBalance()))
+                .build();
+    }
+}
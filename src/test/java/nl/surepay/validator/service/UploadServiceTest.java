@@ -1,40 +1,61 @@
 package nl.surepay.validator.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import nl.surepay.validator.entity.Batch;
 import nl.surepay.validator.entity.Transaction;
 import nl.surepay.validator.error.exception.StatusException;
 import nl.surepay.validator.factory.FileProcessorFactory;
+import nl.surepay.validator.model.AccountReference;
+import nl.surepay.validator.model.Continuity;
+import nl.surepay.validator.model.IngestMode;
 import nl.surepay.validator.model.Report;
 import nl.surepay.validator.model.RowResult;
 import nl.surepay.validator.model.RowValue;
 import nl.surepay.validator.processor.JsonFileProcessor;
 import nl.surepay.validator.repository.BatchRepository;
+import nl.surepay.validator.repository.ReportRepository;
 import nl.surepay.validator.repository.TransactionRepository;
+import nl.surepay.validator.util.Cents;
+import nl.surepay.validator.util.ContentHash;
 import nl.surepay.validator.writer.JsonFileWriter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.dao.DuplicateKeyException;
-import org.springframework.data.relational.core.conversion.DbActionExecutionException;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.DelegatingServletInputStream;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ObjLongConsumer;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @ExtendWith(SpringExtension.class)
+@Import(UploadTestConfiguration.class)
 class UploadServiceTest {
     @MockBean
     BatchRepository batchRepository;
@@ -45,18 +66,33 @@ class UploadServiceTest {
     @MockBean
     TransactionRepository transactionRepository;
 
+    @MockBean
+    ReportRepository reportRepository;
+
+    @MockBean
+    TaskExecutor uploadExecutor;
+
+    @MockBean
+    AccountReferenceIndex accountReferenceIndex;
+
     @Mock
     JsonFileProcessor jsonFileProcessor;
 
     @Mock
     JsonFileWriter jsonFileWriter;
 
+    @Mock
+    HttpServletRequest httpServletRequest;
+
     @Mock
     HttpServletResponse httpServletResponse;
 
     @SpyBean
     UploadService uploadService;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Test
     void upload_shouldCompleteBatch() throws IOException {
         var resource = new ClassPathResource("input/records.json");
@@ -67,38 +103,210 @@ class UploadServiceTest {
         var completedBatch = new Batch();
         completedBatch.setId(newBatch.getId());
         completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(1);
 
         var rowValue = new RowValue(1, "IBAN", "Test transaction",
-                new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("3"));
+                100, 200, 300);
         var rowResult = new RowResult.Valid(rowValue);
         var transaction = Transaction.builder()
                 .batchId(newBatch.getId())
                 .reference(rowValue.reference())
                 .accountNumber(rowValue.accountNumber())
                 .description(rowValue.description())
-                .startBalance(rowValue.startBalance())
-                .mutation(rowValue.mutation())
-                .endBalance(rowValue.endBalance())
+                .startBalance(Cents.toBigDecimal(rowValue.startBalance()))
+                .mutation(Cents.toBigDecimal(rowValue.mutation()))
+                .endBalance(Cents.toBigDecimal(rowValue.endBalance()))
                 .build();
 
         when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
-        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
         when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(rowResult));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{true});
 
-        uploadService.upload(file, httpServletResponse);
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
 
         verify(fileProcessorFactory).getProcessor(file.getOriginalFilename());
-        verify(batchRepository).save(new Batch());
-        verify(transactionRepository).save(transaction);
+        verify(batchRepository).save(runningBatch(file));
+        verify(transactionRepository).insertAll(List.of(transaction));
         verify(batchRepository).save(completedBatch);
-        verifyNoInteractions(jsonFileWriter);
+        verify(jsonFileWriter, never()).write(any());
+        verifyNoInteractions(reportRepository);
+    }
+
+    @Test
+    void upload_shouldWriteToResponse_whenReferenceIsUsedByOtherBatch() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var rowValue = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+        var accountReference = new AccountReference(rowValue.accountNumber(), rowValue.reference());
+        var transaction = Transaction.builder()
+                .batchId(newBatch.getId())
+                .reference(rowValue.reference())
+                .accountNumber(rowValue.accountNumber())
+                .description(rowValue.description())
+                .startBalance(Cents.toBigDecimal(rowValue.startBalance()))
+                .mutation(Cents.toBigDecimal(rowValue.mutation()))
+                .endBalance(Cents.toBigDecimal(rowValue.endBalance()))
+                .build();
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(new RowResult.Valid(rowValue)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{true});
+        when(accountReferenceIndex.addAll(eq(List.of(rowValue)), any())).thenReturn(List.of(accountReference));
+        when(transactionRepository.findAllUsedByOtherBatches(newBatch.getId(), List.of(accountReference)))
+                .thenReturn(Set.of(accountReference));
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        verify(jsonFileWriter).write(new Report(1L, "Test transaction", "Reference was used in another batch of the account"));
+    }
+
+    @Test
+    void upload_shouldWriteToResponse_whenStartBalanceBreaksContinuity() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var runningBatch = runningBatch(file);
+        runningBatch.setContinuity(Continuity.BATCH);
+
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+        newBatch.setContinuity(Continuity.BATCH);
+
+        var first = new RowValue(1, "IBAN", "First transaction", 100, 200, 300);
+        var second = new RowValue(2, "IBAN", "Second transaction", 400, 100, 500);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch)).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class)))
+                .thenReturn(Stream.of(new RowResult.Valid(first), new RowResult.Valid(second)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(anyList())).thenReturn(new boolean[]{true, true});
+
+        uploadService.upload(file, null, Continuity.BATCH, httpServletRequest, httpServletResponse);
+
+        verify(batchRepository).findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(
+                runningBatch.getContentHash(),
+                Continuity.BATCH,
+                Batch.Status.COMPLETED);
+        verify(jsonFileWriter).write(new Report(2L, "Second transaction",
+                "Start balance did not match the previous end balance of the account"));
+        verify(jsonFileWriter, times(1)).write(any());
+        verify(transactionRepository, never()).forEachLastEndBalance(any(), any(), any());
+    }
+
+    @Test
+    void upload_shouldSeedContinuityFromSavedTransactions() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var runningBatch = runningBatch(file);
+        runningBatch.setContinuity(Continuity.ACCOUNT);
+
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+        newBatch.setContinuity(Continuity.ACCOUNT);
+
+        var rowValue = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch)).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(new RowResult.Valid(rowValue)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(anyList())).thenReturn(new boolean[]{true});
+        doAnswer(invocation -> {
+            ObjLongConsumer<String> consumer = invocation.getArgument(2);
+            consumer.accept("IBAN", 50);
+
+            return null;
+        }).when(transactionRepository).forEachLastEndBalance(eq(newBatch.getId()), eq(List.of("IBAN")), any());
+
+        uploadService.upload(file, null, Continuity.ACCOUNT, httpServletRequest, httpServletResponse);
+
+        verify(jsonFileWriter).write(new Report(1L, "Test transaction",
+                "Start balance did not match the previous end balance of the account"));
+    }
+
+    @Test
+    void upload_shouldReadRequestBody() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var inputStream = new DelegatingServletInputStream(resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var completedBatch = new Batch();
+        completedBatch.setId(newBatch.getId());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setContentHash(ContentHash.of(resource.getInputStream()));
+        completedBatch.setProcessedRows(1);
+        completedBatch.setInvalidRows(1);
+
+        var rowResult = new RowResult.Invalid("Reference is not a valid number", 1);
+
+        when(httpServletRequest.getContentLengthLong()).thenReturn(-1L);
+        when(httpServletRequest.getContentType()).thenReturn(APPLICATION_JSON_VALUE);
+        when(httpServletRequest.getInputStream()).thenReturn(inputStream);
+        when(fileProcessorFactory.getProcessorByContentType(APPLICATION_JSON_VALUE, null)).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(rowResult));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+
+        uploadService.upload(httpServletRequest, null, null, httpServletResponse);
+
+        verify(jsonFileProcessor).read(any(InputStream.class));
+        verify(jsonFileWriter).write(new Report(null, null, "Reference is not a valid number at line 1"));
+        // Saved once when completed and once with the hash of the body.
+        verify(batchRepository, times(2)).save(completedBatch);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void upload_shouldWriteStoredReport_whenContentWasProcessedBefore() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var completedBatch = new Batch();
+        completedBatch.setId(UUID.randomUUID());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+
+        var report = new Report(1L, "Test transaction", "Ending balance did not match");
+        var contentHash = ContentHash.of(file.getInputStream());
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(
+                contentHash,
+                Continuity.NONE,
+                Batch.Status.COMPLETED))
+                .thenReturn(Optional.of(completedBatch));
+        when(jsonFileProcessor.createWriter(completedBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(reportRepository.findAllByBatchId(completedBatch.getId(), 0, 1000))
+                .thenReturn(new ReportRepository.Page(List.of(report), 0));
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        verify(jsonFileWriter).write(report);
+        verify(jsonFileWriter).close();
+        verify(batchRepository, never()).save(any());
+        verify(jsonFileProcessor, never()).read(any(InputStream.class));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void upload_shouldThrowError_whenRequestBodyIsEmpty() {
+        when(httpServletRequest.getContentLengthLong()).thenReturn(0L);
+
+        assertThrows(StatusException.class, () -> uploadService.upload(httpServletRequest, null, null, httpServletResponse));
+        verifyNoInteractions(batchRepository);
     }
 
     @Test
     void upload_shouldThrowError_whenFileIsEmpty() {
         var file = new MockMultipartFile("file", "records.json", APPLICATION_JSON_VALUE, new byte[0]);
 
-        assertThrows(StatusException.class, () -> uploadService.upload(file, httpServletResponse));
+        assertThrows(StatusException.class, () -> uploadService.upload(file, null, null, httpServletRequest, httpServletResponse));
     }
 
     @Test
@@ -108,7 +316,7 @@ class UploadServiceTest {
 
         when(fileProcessorFactory.getProcessor("")).thenThrow(IllegalArgumentException.class);
 
-        assertThrows(IllegalArgumentException.class, () -> uploadService.upload(file, httpServletResponse));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.upload(file, null, null, httpServletRequest, httpServletResponse));
     }
 
     @Test
@@ -123,13 +331,17 @@ class UploadServiceTest {
         failedBatch.setStatus(Batch.Status.FAILED);
 
         when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
-        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
         when(jsonFileProcessor.read(any(InputStream.class))).thenThrow(IOException.class);
 
-        assertThrows(RuntimeException.class, () -> uploadService.upload(file, httpServletResponse));
+        assertThrows(RuntimeException.class, () -> uploadService.upload(file, null, null, httpServletRequest, httpServletResponse));
 
         verify(fileProcessorFactory).getProcessor(file.getOriginalFilename());
-        verify(batchRepository).save(new Batch());
+        verify(batchRepository).findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(
+                runningBatch(file).getContentHash(),
+                Continuity.NONE,
+                Batch.Status.COMPLETED);
+        verify(batchRepository).save(runningBatch(file));
         verify(batchRepository).save(failedBatch);
         verifyNoMoreInteractions(batchRepository);
         verifyNoInteractions(httpServletResponse);
@@ -146,22 +358,25 @@ class UploadServiceTest {
         var completedBatch = new Batch();
         completedBatch.setId(newBatch.getId());
         completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(1);
+        completedBatch.setInvalidRows(1);
 
         var rowResult = new RowResult.Invalid("Reference is not a number", 1);
         var report = new Report(null, null, rowResult.error() + " at line " + rowResult.lineNumber());
 
         when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
-        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
         when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(rowResult));
-        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletResponse)).thenReturn(jsonFileWriter);
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
 
-        uploadService.upload(file, httpServletResponse);
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
 
         verify(fileProcessorFactory).getProcessor(file.getOriginalFilename());
-        verify(batchRepository).save(new Batch());
+        verify(batchRepository).save(runningBatch(file));
         verifyNoInteractions(transactionRepository);
         verify(batchRepository).save(completedBatch);
         verify(jsonFileWriter).write(report);
+        verify(reportRepository).insertAll(newBatch.getId(), 0, List.of(report));
     }
 
     @Test
@@ -174,9 +389,11 @@ class UploadServiceTest {
         var completedBatch = new Batch();
         completedBatch.setId(newBatch.getId());
         completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(1);
+        completedBatch.setInvalidRows(1);
 
         var rowValue = new RowValue(1, "IBAN", "Test transaction",
-                new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("4"));
+                100, 200, 400);
         var rowResult = new RowResult.Valid(rowValue);
         var report = new Report(rowValue.reference(), rowValue.description(), "Ending balance did not match");
         var transaction = Transaction.builder()
@@ -184,25 +401,57 @@ class UploadServiceTest {
                 .reference(rowValue.reference())
                 .accountNumber(rowValue.accountNumber())
                 .description(rowValue.description())
-                .startBalance(rowValue.startBalance())
-                .mutation(rowValue.mutation())
-                .endBalance(rowValue.endBalance())
+                .startBalance(Cents.toBigDecimal(rowValue.startBalance()))
+                .mutation(Cents.toBigDecimal(rowValue.mutation()))
+                .endBalance(Cents.toBigDecimal(rowValue.endBalance()))
                 .build();
 
         when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
-        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
         when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(rowResult));
-        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletResponse)).thenReturn(jsonFileWriter);
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{true});
 
-        uploadService.upload(file, httpServletResponse);
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
 
         verify(fileProcessorFactory).getProcessor(file.getOriginalFilename());
-        verify(batchRepository).save(new Batch());
-        verify(transactionRepository).save(transaction);
+        verify(batchRepository).save(runningBatch(file));
+        verify(transactionRepository).insertAll(List.of(transaction));
         verify(batchRepository).save(completedBatch);
         verify(jsonFileWriter).write(report);
     }
 
+    @Test
+    void upload_shouldRecordMetrics() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var valid = new RowValue(1, "IBAN", "Test transaction", 100, 200, 300);
+        var mismatch = new RowValue(2, "IBAN", "Test transaction", 100, 200, 400);
+        var invalid = new RowResult.Invalid("Invalid number of columns", 3);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class)))
+                .thenReturn(Stream.of(new RowResult.Valid(valid), new RowResult.Valid(mismatch), invalid));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(anyList())).thenReturn(new boolean[]{true, true});
+
+        meterRegistry.clear();
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        assertEquals(3, meterRegistry.get("upload.rows").counter().count());
+        assertEquals(1, meterRegistry.get("upload.rows.rejected").tag("reason", "balance").counter().count());
+        assertEquals(1, meterRegistry.get("upload.rows.rejected").tag("reason", "invalid").counter().count());
+        assertEquals(0, meterRegistry.get("upload.rows.rejected").tag("reason", "duplicate").counter().count());
+        assertEquals(1, meterRegistry.get("upload.stage").tag("stage", "persist").timer().count());
+        assertEquals(1, meterRegistry.get("upload.bytes").summary().count());
+        assertEquals(0, meterRegistry.get("upload.active").longTaskTimer().activeTasks());
+    }
+
     @Test
     void upload_shouldWriteToResponse_whenReferenceIsUnique() throws IOException {
         var resource = new ClassPathResource("input/records.json");
@@ -213,9 +462,11 @@ class UploadServiceTest {
         var completedBatch = new Batch();
         completedBatch.setId(newBatch.getId());
         completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(1);
+        completedBatch.setDuplicateRows(1);
 
         var rowValue = new RowValue(1, "IBAN", "Test transaction",
-                new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("4"));
+                100, 200, 400);
         var rowResult = new RowResult.Valid(rowValue);
         var report = new Report(rowValue.reference(), rowValue.description(), "Duplicate reference");
         var transaction = Transaction.builder()
@@ -223,24 +474,258 @@ class UploadServiceTest {
                 .reference(rowValue.reference())
                 .accountNumber(rowValue.accountNumber())
                 .description(rowValue.description())
-                .startBalance(rowValue.startBalance())
-                .mutation(rowValue.mutation())
-                .endBalance(rowValue.endBalance())
+                .startBalance(Cents.toBigDecimal(rowValue.startBalance()))
+                .mutation(Cents.toBigDecimal(rowValue.mutation()))
+                .endBalance(Cents.toBigDecimal(rowValue.endBalance()))
                 .build();
 
         when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
-        when(batchRepository.save(new Batch())).thenReturn(newBatch);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
         when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(rowResult));
-        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletResponse)).thenReturn(jsonFileWriter);
-        when(transactionRepository.save(transaction))
-                .thenThrow(new DbActionExecutionException(() -> Object.class, new DuplicateKeyException("Not unique")));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{false});
 
-        uploadService.upload(file, httpServletResponse);
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
 
         verify(fileProcessorFactory).getProcessor(file.getOriginalFilename());
-        verify(batchRepository).save(new Batch());
-        verify(transactionRepository).save(transaction);
+        verify(batchRepository).save(runningBatch(file));
+        verify(transactionRepository).insertAll(List.of(transaction));
         verify(batchRepository).save(completedBatch);
         verify(jsonFileWriter).write(report);
     }
+
+    @Test
+    void upload_shouldInsertEachRow_whenChunkInsertFails() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var completedBatch = new Batch();
+        completedBatch.setId(newBatch.getId());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(2);
+        completedBatch.setInvalidRows(1);
+
+        var validValue = new RowValue(1, "IBAN", "Valid transaction",
+                100, 200, 300);
+        var failingValue = new RowValue(2, "IBAN", "Failing transaction",
+                100, 200, 300);
+        var validTransaction = Transaction.builder()
+                .batchId(newBatch.getId())
+                .reference(validValue.reference())
+                .accountNumber(validValue.accountNumber())
+                .description(validValue.description())
+                .startBalance(Cents.toBigDecimal(validValue.startBalance()))
+                .mutation(Cents.toBigDecimal(validValue.mutation()))
+                .endBalance(Cents.toBigDecimal(validValue.endBalance()))
+                .build();
+        var failingTransaction = Transaction.builder()
+                .batchId(newBatch.getId())
+                .reference(failingValue.reference())
+                .accountNumber(failingValue.accountNumber())
+                .description(failingValue.description())
+                .startBalance(Cents.toBigDecimal(failingValue.startBalance()))
+                .mutation(Cents.toBigDecimal(failingValue.mutation()))
+                .endBalance(Cents.toBigDecimal(failingValue.endBalance()))
+                .build();
+        var exception = new DataIntegrityViolationException("Value too long");
+        var report = new Report(failingValue.reference(), failingValue.description(), exception.getMessage());
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class)))
+                .thenReturn(Stream.of(new RowResult.Valid(validValue), new RowResult.Valid(failingValue)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(validTransaction, failingTransaction))).thenThrow(exception);
+        when(transactionRepository.insertAll(List.of(validTransaction))).thenReturn(new boolean[]{true});
+        when(transactionRepository.insertAll(List.of(failingTransaction))).thenThrow(exception);
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        verify(transactionRepository).insertAll(List.of(validTransaction, failingTransaction));
+        verify(transactionRepository).insertAll(List.of(validTransaction));
+        verify(transactionRepository).insertAll(List.of(failingTransaction));
+        verify(batchRepository).save(completedBatch);
+        verify(jsonFileWriter).write(report);
+    }
+
+    @Test
+    void upload_shouldNotInsertDuplicates_whenReferenceWasSeen() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var completedBatch = new Batch();
+        completedBatch.setId(newBatch.getId());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(2);
+        completedBatch.setDuplicateRows(1);
+
+        var firstValue = new RowValue(1, "IBAN", "First transaction",
+                100, 200, 300);
+        var duplicateValue = new RowValue(1, "IBAN", "Duplicate transaction",
+                100, 200, 300);
+        var report = new Report(duplicateValue.reference(), duplicateValue.description(), "Duplicate reference");
+        var transaction = Transaction.builder()
+                .batchId(newBatch.getId())
+                .reference(firstValue.reference())
+                .accountNumber(firstValue.accountNumber())
+                .description(firstValue.description())
+                .startBalance(Cents.toBigDecimal(firstValue.startBalance()))
+                .mutation(Cents.toBigDecimal(firstValue.mutation()))
+                .endBalance(Cents.toBigDecimal(firstValue.endBalance()))
+                .build();
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class)))
+                .thenReturn(Stream.of(new RowResult.Valid(firstValue), new RowResult.Valid(duplicateValue)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.insertAll(List.of(transaction))).thenReturn(new boolean[]{true});
+
+        uploadService.upload(file, null, null, httpServletRequest, httpServletResponse);
+
+        verify(transactionRepository).insertAll(List.of(transaction));
+        verifyNoMoreInteractions(transactionRepository);
+        verify(batchRepository).save(completedBatch);
+        verify(jsonFileWriter).write(report);
+    }
+
+    @Test
+    void upload_shouldCopyTransactions_whenModeIsCopy() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+
+        var completedBatch = new Batch();
+        completedBatch.setId(newBatch.getId());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+        completedBatch.setProcessedRows(1);
+
+        var rowValue = new RowValue(1, "IBAN", "Test transaction",
+                100, 200, 300);
+        var transaction = Transaction.builder()
+                .batchId(newBatch.getId())
+                .reference(rowValue.reference())
+                .accountNumber(rowValue.accountNumber())
+                .description(rowValue.description())
+                .startBalance(Cents.toBigDecimal(rowValue.startBalance()))
+                .mutation(Cents.toBigDecimal(rowValue.mutation()))
+                .endBalance(Cents.toBigDecimal(rowValue.endBalance()))
+                .build();
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(runningBatch(file))).thenReturn(newBatch);
+        when(jsonFileProcessor.read(any(InputStream.class))).thenReturn(Stream.of(new RowResult.Valid(rowValue)));
+        when(jsonFileProcessor.createWriter(newBatch.getId(), httpServletRequest, httpServletResponse)).thenReturn(jsonFileWriter);
+        when(transactionRepository.copyAll(List.of(transaction))).thenReturn(new boolean[]{true});
+
+        uploadService.upload(file, IngestMode.COPY, null, httpServletRequest, httpServletResponse);
+
+        verify(transactionRepository).copyAll(List.of(transaction));
+        verifyNoMoreInteractions(transactionRepository);
+        verify(batchRepository).save(completedBatch);
+    }
+
+    @Test
+    void uploadAsync_shouldQueueBatchAndProcessInBackground() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var queuedBatch = new Batch();
+        queuedBatch.setStatus(Batch.Status.QUEUED);
+        queuedBatch.setContentHash(ContentHash.of(file.getInputStream()));
+
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+        newBatch.setStatus(Batch.Status.QUEUED);
+
+        var storedBatch = new Batch();
+        storedBatch.setId(newBatch.getId());
+        storedBatch.setStatus(Batch.Status.QUEUED);
+
+        var rowResult = new RowResult.Invalid("Reference is not a number", 1);
+        var report = new Report(null, null, rowResult.error() + " at line " + rowResult.lineNumber());
+        var task = ArgumentCaptor.forClass(Runnable.class);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(queuedBatch)).thenReturn(newBatch);
+        when(batchRepository.findById(newBatch.getId())).thenReturn(Optional.of(storedBatch));
+        when(jsonFileProcessor.read(any(Path.class), any())).thenReturn(Stream.of(rowResult));
+
+        var batch = uploadService.uploadAsync(file, null, null);
+
+        assertEquals(newBatch, batch);
+        verify(uploadExecutor).execute(task.capture());
+        verify(jsonFileProcessor, never()).createWriter(any(), any(), any());
+
+        task.getValue().run();
+
+        assertEquals(Batch.Status.QUEUED, newBatch.getStatus());
+        assertEquals(Batch.Status.COMPLETED, storedBatch.getStatus());
+        assertEquals(1, storedBatch.getProcessedRows());
+        assertEquals(1, storedBatch.getInvalidRows());
+        verify(reportRepository).insertAll(newBatch.getId(), 0, List.of(report));
+    }
+
+    @Test
+    void uploadAsync_shouldReturnCompletedBatch_whenContentWasProcessedBefore() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var completedBatch = new Batch();
+        completedBatch.setId(UUID.randomUUID());
+        completedBatch.setStatus(Batch.Status.COMPLETED);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.findFirstByContentHashAndContinuityAndStatusOrderByCreatedAtDesc(any(), any(), any()))
+                .thenReturn(Optional.of(completedBatch));
+
+        var batch = uploadService.uploadAsync(file, null, null);
+
+        assertEquals(completedBatch, batch);
+        verify(batchRepository, never()).save(any());
+        verifyNoInteractions(uploadExecutor);
+    }
+
+    @Test
+    void uploadAsync_shouldFailBatchAndThrowError_whenExecutorIsFull() throws IOException {
+        var resource = new ClassPathResource("input/records.json");
+        var file = new MockMultipartFile("file", resource.getFilename(), APPLICATION_JSON_VALUE, resource.getInputStream());
+        var queuedBatch = new Batch();
+        queuedBatch.setStatus(Batch.Status.QUEUED);
+        queuedBatch.setContentHash(ContentHash.of(file.getInputStream()));
+
+        var newBatch = new Batch();
+        newBatch.setId(UUID.randomUUID());
+        newBatch.setStatus(Batch.Status.QUEUED);
+
+        when(fileProcessorFactory.getProcessor(file.getOriginalFilename())).thenReturn(jsonFileProcessor);
+        when(batchRepository.save(queuedBatch)).thenReturn(newBatch);
+        doThrow(RejectedExecutionException.class).when(uploadExecutor).execute(any());
+
+        var exception = assertThrows(StatusException.class, () -> uploadService.uploadAsync(file, null, null));
+
+        assertEquals("error.upload.busy", exception.getCode());
+        assertEquals(Batch.Status.FAILED, newBatch.getStatus());
+    }
+
+    @Test
+    void getBatch_shouldThrowError_whenBatchDoesNotExist() {
+        var id = UUID.randomUUID();
+
+        when(batchRepository.findById(id)).thenReturn(Optional.empty());
+
+        var exception = assertThrows(StatusException.class, () -> uploadService.getBatch(id));
+
+        assertEquals("error.batch.notFound", exception.getCode());
+    }
+
+    private static Batch runningBatch(MockMultipartFile file) throws IOException {
+        var batch = new Batch();
+        batch.setContentHash(ContentHash.of(file.getInputStream()));
+
+        return batch;
+    }
 }
@@ -0,0 +1,99 @@
+package nl.surepay.validator.service;
+
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.error.exception.StatusException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadStorageTest {
+    @TempDir
+    Path directory;
+
+    UploadStorage uploadStorage;
+
+    final UUID id = UUID.randomUUID();
+
+    @BeforeEach
+    void createStorage() {
+        uploadStorage = new UploadStorage(new UploadProperties(
+                1000,
+                2,
+                new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                new UploadProperties.Async(1, 1),
+                new UploadProperties.Parallel(DataSize.ofMegabytes(64), DataSize.ofMegabytes(8), 4),
+                new UploadProperties.Resumable(directory),
+                new UploadProperties.CrossBatch(1000, 0.01),
+                new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                new UploadProperties.Database(2)));
+    }
+
+    @Test
+    void write_shouldAppendChunk_whenOffsetIsEndOfFile() throws IOException {
+        assertEquals(5, uploadStorage.write(id, 0, 5, stream("first")));
+        assertEquals(11, uploadStorage.write(id, 5, 6, stream("second")));
+        assertEquals("firstsecond", Files.readString(uploadStorage.path(id), UTF_8));
+    }
+
+    @Test
+    void write_shouldDropStoredBytesAfterOffset() throws IOException {
+        uploadStorage.write(id, 0, 11, stream("firstsecond"));
+
+        assertEquals(10, uploadStorage.write(id, 5, 5, stream("third")));
+        assertEquals("firstthird", Files.readString(uploadStorage.path(id), UTF_8));
+    }
+
+    @Test
+    void write_shouldThrowError_whenStreamIsLargerThanSize() throws IOException {
+        uploadStorage.write(id, 0, 5, stream("first"));
+
+        // Far more than the range, like a body that would fill the disk.
+        var inputStream = new InputStream() {
+            private long read;
+
+            @Override
+            public int read() {
+                read++;
+
+                return 'x';
+            }
+        };
+
+        var exception = assertThrows(StatusException.class, () -> uploadStorage.write(id, 5, 1, inputStream));
+
+        assertEquals("validation.contentRange.size", exception.getCode());
+        assertEquals(2, inputStream.read);
+        assertEquals("first", Files.readString(uploadStorage.path(id), UTF_8));
+    }
+
+    @Test
+    void write_shouldThrowError_whenStreamIsSmallerThanSize() throws IOException {
+        uploadStorage.write(id, 0, 5, stream("first"));
+
+        var exception = assertThrows(StatusException.class, () -> uploadStorage.write(id, 5, 10, stream("second")));
+
+        assertEquals("validation.contentRange.size", exception.getCode());
+        assertEquals("first", Files.readString(uploadStorage.path(id), UTF_8));
+    }
+
+    @Test
+    void write_shouldThrowError_whenOffsetIsAfterEndOfFile() {
+        assertThrows(IOException.class, () -> uploadStorage.write(id, 5, 5, stream("first")));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
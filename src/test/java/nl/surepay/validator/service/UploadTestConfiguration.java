@@ -0,0 +1,45 @@
+package nl.surepay.validator.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.surepay.validator.config.UploadProperties;
+import nl.surepay.validator.util.Throttle;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@TestConfiguration
+@Import({UploadPipeline.class, ReportService.class})
+class UploadTestConfiguration {
+    @Bean
+    UploadProperties uploadProperties() {
+        return new UploadProperties(
+                1000,
+                2,
+                new UploadProperties.Copy(50000, DataSize.ofMegabytes(100)),
+                new UploadProperties.Async(1, 1),
+                new UploadProperties.Parallel(DataSize.ofMegabytes(64), DataSize.ofMegabytes(8), 1),
+                new UploadProperties.Resumable(Path.of("uploads")),
+                new UploadProperties.CrossBatch(1000, 0.01),
+                new UploadProperties.Report(DataSize.ofKilobytes(64)),
+                new UploadProperties.Database(2));
+    }
+
+    @Bean
+    Throttle databaseThrottle() {
+        return new Throttle(1);
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    UploadMetrics uploadMetrics(MeterRegistry meterRegistry) {
+        return new UploadMetrics(meterRegistry);
+    }
+}
@@ -0,0 +1,129 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundIteratorTest {
+    @Test
+    void next_shouldReturnElementsInOrder() {
+        var expected = IntStream.range(0, 1000).boxed().toList();
+        var actual = new ArrayList<Integer>();
+
+        try (var iterator = new BackgroundIterator<>("test", expected.iterator(), 2)) {
+            iterator.forEachRemaining(actual::add);
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void next_shouldRethrowException_whenSourceFails() {
+        var source = Iterators.map(List.of(1, 2, 3).iterator(), value -> {
+            if (value == 3) {
+                throw new IllegalStateException("Source failed");
+            }
+
+            return value;
+        });
+
+        try (var iterator = new BackgroundIterator<>("test", source, 2)) {
+            assertEquals(1, iterator.next());
+            assertEquals(2, iterator.next());
+
+            var exception = assertThrows(IllegalStateException.class, iterator::hasNext);
+
+            assertEquals("Source failed", exception.getMessage());
+        }
+    }
+
+    @Test
+    void next_shouldRethrowError_whenSourceFails() {
+        var source = Iterators.map(List.of(1, 2).iterator(), value -> {
+            if (value == 2) {
+                throw new OutOfMemoryError("Source failed");
+            }
+
+            return value;
+        });
+
+        try (var iterator = new BackgroundIterator<>("test", source, 2)) {
+            assertEquals(1, iterator.next());
+
+            var error = assertThrows(OutOfMemoryError.class, iterator::hasNext);
+
+            assertEquals("Source failed", error.getMessage());
+        }
+    }
+
+    @Test
+    void close_shouldWaitForSourceToStop() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var working = new AtomicBoolean();
+        Iterator<Integer> source = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                working.set(true);
+                started.countDown();
+
+                // Like a database call that does not stop as soon as the thread is interrupted.
+                var end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+
+                working.set(false);
+
+                return 1;
+            }
+        };
+
+        var iterator = new BackgroundIterator<>("test", source, 1);
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        iterator.close();
+
+        assertFalse(working.get());
+    }
+
+    @Test
+    void source_shouldNotWorkAheadMoreThanCapacity() throws InterruptedException {
+        var produced = new AtomicInteger();
+        Iterator<Integer> source = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return produced.incrementAndGet();
+            }
+        };
+
+        try (var iterator = new BackgroundIterator<>("test", source, 2)) {
+            assertEquals(1, iterator.next());
+
+            Thread.sleep(100);
+
+            // One element is taken, two are queued and one is waiting to be queued.
+            assertTrue(produced.get() <= 4);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+    @Test
+    void put_shouldReturnFalse_whenHashWasPut() {
+        var filter = new BloomFilter(100, 0.01);
+
+        assertTrue(filter.put(112806));
+        assertFalse(filter.put(112806));
+        assertTrue(filter.mightContain(112806));
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositiveRate() {
+        var filter = new BloomFilter(100_000, 0.01);
+
+        for (var i = 0L; i < 100_000; i++) {
+            filter.put(i);
+        }
+
+        for (var i = 0L; i < 100_000; i++) {
+            assertTrue(filter.mightContain(i));
+        }
+
+        var falsePositives = 0;
+
+        for (var i = 100_000L; i < 200_000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+
+        // 1% of 100000, with room for chance.
+        assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,54 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedVirtualThreadExecutorTest {
+    @Test
+    void execute_shouldRunTaskOnVirtualThread() throws Exception {
+        var executor = new BoundedVirtualThreadExecutor("test-", 1, 0);
+        var virtual = new CompletableFuture<Boolean>();
+
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_shouldRejectTask_whenQueueIsFull() throws Exception {
+        var executor = new BoundedVirtualThreadExecutor("test-", 1, 1);
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(2);
+        var maxRunning = new AtomicInteger();
+        var running = new AtomicInteger();
+        Runnable task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            running.decrementAndGet();
+            done.countDown();
+        };
+
+        executor.execute(task);
+        executor.execute(task);
+
+        assertThrows(TaskRejectedException.class, () -> executor.execute(task));
+
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+}
@@ -0,0 +1,73 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CentsTest {
+    @Test
+    void parse_shouldReturnCents() {
+        assertEquals(-4183, Cents.parse("-41.83"));
+        assertEquals(200, Cents.parse("+2"));
+        assertEquals(50, Cents.parse(".5"));
+        assertEquals(Cents.MAX, Cents.parse("9999999999.99"));
+    }
+
+    @Test
+    void parse_shouldApplyExponent() {
+        assertEquals(15000, Cents.parse("1.5e2"));
+        assertEquals(15000, Cents.parse("1.5E+2"));
+        assertEquals(1234, Cents.parse("1234e-2"));
+        assertEquals(-1, Cents.parse("-1e-2"));
+        assertEquals(0, Cents.parse("0e-999999999"));
+    }
+
+    @Test
+    void parse_shouldAcceptTrailingZeros() {
+        assertEquals(123, Cents.parse("1.230"));
+        assertEquals(1000, Cents.parse("10.000000000000000000000"));
+    }
+
+    @Test
+    void parse_shouldThrowError_whenValueHasMoreThan2Decimals() {
+        assertMessage("has more than 2 decimals", "1.001");
+        assertMessage("has more than 2 decimals", "1.5e-2");
+        assertMessage("has more than 2 decimals", "1e-999999999");
+    }
+
+    @Test
+    void parse_shouldThrowError_whenValueIsTooLarge() {
+        assertMessage("is too large", "10000000000");
+        assertMessage("is too large", "1e10");
+        assertMessage("is too large", "1e999999999");
+        assertMessage("is too large", "1e2147483647");
+    }
+
+    @Test
+    void parse_shouldThrowError_whenValueIsNotANumber() {
+        assertMessage("is not a valid number", null);
+        assertMessage("is not a valid number", "");
+        assertMessage("is not a valid number", ".");
+        assertMessage("is not a valid number", "one");
+        assertMessage("is not a valid number", "1e");
+        assertMessage("is not a valid number", "e2");
+        assertMessage("is not a valid number", "1.2.3");
+    }
+
+    @Test
+    void fromUnscaled_shouldReturnCents() {
+        assertEquals(123, Cents.fromUnscaled(1230, 3));
+        assertEquals(12300, Cents.fromUnscaled(123, 0));
+        assertEquals(12300, Cents.fromUnscaled(new BigDecimal("1.23E+2")));
+        assertThrows(NumberFormatException.class, () -> Cents.fromUnscaled(1231, 3));
+        assertThrows(NumberFormatException.class, () -> Cents.fromUnscaled(1, -11));
+    }
+
+    private static void assertMessage(String message, String value) {
+        var exception = assertThrows(NumberFormatException.class, () -> Cents.parse(value));
+
+        assertEquals(message, exception.getMessage(), value);
+    }
+}
@@ -0,0 +1,35 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContentHashTest {
+    private static final String CONTENT = "[{\"reference\":1}]\n";
+
+    @Test
+    void of_shouldReturnSha256AsHex() throws IOException {
+        var hash = ContentHash.of(new ByteArrayInputStream("abc".getBytes(UTF_8)));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+    }
+
+    @Test
+    void hashing_shouldIncludeBytesLeftAfterClose() throws IOException {
+        var inputStream = new ByteArrayInputStream(CONTENT.getBytes(UTF_8));
+        var digest = ContentHash.newDigest();
+
+        try (var hashing = ContentHash.hashing(inputStream, digest)) {
+            // Read up to the closing bracket, like a json parser does.
+            hashing.readNBytes(CONTENT.length() - 1);
+        }
+
+        ContentHash.update(digest, inputStream);
+
+        assertEquals(ContentHash.of(new ByteArrayInputStream(CONTENT.getBytes(UTF_8))), ContentHash.toHex(digest));
+    }
+}
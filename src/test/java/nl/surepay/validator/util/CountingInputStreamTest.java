@@ -0,0 +1,33 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CountingInputStreamTest {
+    @Test
+    void read_shouldCountBytes() throws IOException {
+        var bytesRead = new AtomicLong();
+
+        try (var inputStream = new CountingInputStream(new ByteArrayInputStream(new byte[10]), bytesRead::addAndGet)) {
+            inputStream.read();
+            assertEquals(1, bytesRead.get());
+
+            inputStream.read(new byte[4]);
+            assertEquals(5, bytesRead.get());
+
+            inputStream.skip(2);
+            assertEquals(7, bytesRead.get());
+
+            inputStream.readAllBytes();
+            assertEquals(10, bytesRead.get());
+
+            assertEquals(-1, inputStream.read());
+            assertEquals(10, bytesRead.get());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IteratorsTest {
+    @Test
+    void chunk_shouldGroupElements() {
+        var chunks = new ArrayList<List<Integer>>();
+
+        Iterators.chunk(List.of(1, 2, 3, 4, 5).iterator(), 2).forEachRemaining(chunks::add);
+
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), chunks);
+    }
+
+    @Test
+    void map_shouldApplyMapper() {
+        var values = new ArrayList<String>();
+
+        Iterators.map(List.of(1, 2).iterator(), String::valueOf).forEachRemaining(values::add);
+
+        assertEquals(List.of("1", "2"), values);
+    }
+}
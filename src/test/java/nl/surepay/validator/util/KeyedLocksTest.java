@@ -0,0 +1,75 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedLocksTest {
+    @Test
+    void call_shouldRunOneAtATime_whenKeyIsTheSame() {
+        var locks = new KeyedLocks<String>();
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < 50; i++) {
+                executor.execute(() -> locks.call("batch", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    running.decrementAndGet();
+
+                    return null;
+                }));
+            }
+        }
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, locks.size());
+    }
+
+    @Test
+    void call_shouldNotWait_whenKeyIsDifferent() throws InterruptedException {
+        var locks = new KeyedLocks<String>();
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var holder = Thread.ofVirtual().start(() -> locks.call("first", () -> {
+            locked.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return null;
+        }));
+
+        assertTrue(locked.await(1, TimeUnit.SECONDS));
+        assertEquals("done", locks.call("second", () -> "done"));
+        assertEquals(1, locks.size());
+
+        release.countDown();
+        holder.join();
+
+        assertEquals(0, locks.size());
+    }
+
+    @Test
+    void call_shouldReleaseLock_whenSupplierFails() {
+        var locks = new KeyedLocks<String>();
+
+        assertThrows(IllegalStateException.class, () -> locks.call("batch", () -> {
+            throw new IllegalStateException("Failed");
+        }));
+
+        assertEquals(0, locks.size());
+        assertEquals("done", locks.call("batch", () -> "done"));
+    }
+}
@@ -0,0 +1,59 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+    @Test
+    void add_shouldReturnFalse_whenValueExists() {
+        var set = new LongHashSet();
+
+        assertTrue(set.add(112806));
+        assertTrue(set.add(0));
+        assertFalse(set.add(112806));
+        assertFalse(set.add(0));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void remove_shouldKeepOtherValuesReachable() {
+        var set = new LongHashSet(2);
+
+        for (var i = 1; i <= 100; i++) {
+            set.add(i);
+        }
+
+        assertTrue(set.remove(50));
+        assertFalse(set.remove(50));
+        assertFalse(set.contains(50));
+
+        for (var i = 1; i <= 100; i++) {
+            assertEquals(i != 50, set.contains(i));
+        }
+
+        assertEquals(99, set.size());
+    }
+
+    @Test
+    void operations_shouldMatchHashSet() {
+        var random = new Random(42);
+        var set = new LongHashSet();
+        var expected = new HashSet<Long>();
+
+        for (var i = 0; i < 100_000; i++) {
+            var value = random.nextLong(-1_000, 10_000);
+
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.add(value), set.add(value));
+                case 1 -> assertEquals(expected.remove(value), set.remove(value));
+                default -> assertEquals(expected.contains(value), set.contains(value));
+            }
+
+            assertEquals(expected.size(), set.size());
+        }
+    }
+}
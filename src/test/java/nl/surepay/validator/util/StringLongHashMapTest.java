@@ -0,0 +1,43 @@
+package nl.surepay.validator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringLongHashMapTest {
+    @Test
+    void put_shouldReplaceValue_whenKeyExists() {
+        var map = new StringLongHashMap();
+
+        map.put("NL91RABO0315273637", 2160);
+        map.put("NL91RABO0315273637", -2023);
+
+        assertEquals(-2023, map.get("NL91RABO0315273637", 0));
+        assertEquals(0, map.get("NL27SNSB0917829871", 0));
+        assertTrue(map.containsKey("NL91RABO0315273637"));
+        assertFalse(map.containsKey("NL27SNSB0917829871"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void put_shouldMatchHashMap() {
+        var map = new StringLongHashMap(2);
+        var expected = new HashMap<String, Long>();
+        var random = new Random(42);
+
+        for (var i = 0; i < 100_000; i++) {
+            var key = "NL%02dRABO%010d".formatted(random.nextInt(100), random.nextInt(10_000));
+            var value = random.nextLong();
+
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertEquals(expected.size(), map.size());
+
+        expected.forEach((key, value) -> assertEquals(value, map.get(key, Long.MIN_VALUE)));
+    }
+}
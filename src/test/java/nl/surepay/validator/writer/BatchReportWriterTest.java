@@ -0,0 +1,62 @@
+package nl.surepay.validator.writer;
+
+import nl.surepay.validator.model.Report;
+import nl.surepay.validator.repository.ReportRepository;
+import nl.surepay.validator.util.Throttle;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class BatchReportWriterTest {
+    @Test
+    void write_shouldSaveReportsInBatches() {
+        var reportRepository = mock(ReportRepository.class);
+        var batchId = UUID.randomUUID();
+        var writer = new BatchReportWriter(reportRepository, new Throttle(1), batchId, 2);
+        var first = new Report(null, null, "Reference is not a valid number at line 1");
+        var second = new Report(2L, "Description", "Duplicate reference");
+        var third = new Report(3L, "Description", "Ending balance did not match");
+
+        writer.write(first);
+        writer.write(second);
+
+        verify(reportRepository).insertAll(batchId, 0, List.of(first, second));
+
+        writer.write(third);
+        writer.close();
+
+        verify(reportRepository).insertAll(batchId, 2, List.of(third));
+        verifyNoMoreInteractions(reportRepository);
+    }
+
+    @Test
+    void flush_shouldContinueFromFirstLine() {
+        var reportRepository = mock(ReportRepository.class);
+        var batchId = UUID.randomUUID();
+        var writer = new BatchReportWriter(reportRepository, new Throttle(1), batchId, 10, 5);
+        var report = new Report(6L, "Description", "Duplicate reference");
+
+        writer.write(report);
+
+        assertEquals(6, writer.line());
+
+        writer.flush();
+
+        verify(reportRepository).insertAll(batchId, 5, List.of(report));
+        assertEquals(6, writer.line());
+    }
+
+    @Test
+    void close_shouldNotSave_whenThereAreNoReports() {
+        var reportRepository = mock(ReportRepository.class);
+        var writer = new BatchReportWriter(reportRepository, new Throttle(1), UUID.randomUUID(), 2);
+
+        writer.close();
+
+        verifyNoInteractions(reportRepository);
+    }
+}
@@ -3,34 +3,61 @@ package nl.surepay.validator.writer;
 import nl.surepay.validator.model.Report;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.OutputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 class CsvFileWriterTest {
     @Test
     void write_shouldWriteReport() throws IOException {
-        var writer = mock(Writer.class);
-        var csvFileWriter = new CsvFileWriter(writer);
+        var outputStream = new ByteArrayOutputStream();
+        var csvFileWriter = new CsvFileWriter(outputStream, 1024);
 
         csvFileWriter.write(new Report(null, null, "Null reference and description"));
         csvFileWriter.write(new Report(1L, "Description", "With reference and description"));
+        csvFileWriter.close();
+
+        var expected = """
+                "Reference","Description","Error Message"
+                "",,"Null reference and description"
+                "1","Description","With reference and description"
+                """;
 
-        verify(writer).write("\"Reference\",\"Description\",\"Error Message\"\n");
-        verify(writer).write("\"\",,\"Null reference and description\"\n");
-        verify(writer).write("\"1\",\"Description\",\"With reference and description\"\n");
+        assertEquals(expected, outputStream.toString(UTF_8));
+    }
+
+    @Test
+    void write_shouldEscapeQuotesAndEncodeUtf8() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        var description = "Book \"John\", Theuß\n€ 😀";
+
+        // A tiny buffer, so the values are written over many flushes.
+        try (var csvFileWriter = new CsvFileWriter(outputStream, 1)) {
+            csvFileWriter.write(new Report(-9223372036854775808L, description, null));
+        }
+
+        var expected = """
+                "Reference","Description","Error Message"
+                "-9223372036854775808","Book ""John"", Theuß
+                € 😀",
+                """;
+
+        assertEquals(expected, outputStream.toString(UTF_8));
     }
 
     @Test
     void close_shouldCloseResource() throws IOException {
-        var writer = mock(Writer.class);
-        var csvFileWriter = new CsvFileWriter(writer);
+        var outputStream = mock(OutputStream.class);
+        var csvFileWriter = new CsvFileWriter(outputStream, 1024);
 
         csvFileWriter.close();
 
-        verify(writer).flush();
-        verify(writer).close();
+        verify(outputStream).flush();
+        verify(outputStream).close();
     }
 }
@@ -6,11 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.JsonTest;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -22,8 +23,8 @@ class JsonFileWriterTest {
 
     @Test
     void write_shouldWriteReport() throws IOException {
-        var writer = new StringWriter();
-        var jsonFileWriter = new JsonFileWriter(objectMapper, writer);
+        var outputStream = new ByteArrayOutputStream();
+        var jsonFileWriter = new JsonFileWriter(outputStream, 1024);
         var reportNullReference = new Report(null, null, "Null reference and description");
         var reportWithReference = new Report(1L, "Description", "With reference and description");
         var expected = objectMapper.writeValueAsString(List.of(reportNullReference, reportWithReference));
@@ -32,17 +33,41 @@ class JsonFileWriterTest {
         jsonFileWriter.write(reportWithReference);
         jsonFileWriter.close();
 
-        assertEquals(expected, writer.toString());
+        assertEquals(expected, outputStream.toString(UTF_8));
+    }
+
+    @Test
+    void write_shouldEscapeLikeObjectMapper() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        var report = new Report(-1L, "Book \"John\" \\ Theuß\n\t\u0001\u001F/ € 😀", "\b\f\r\u007F");
+        var expected = objectMapper.writeValueAsString(List.of(report, report));
+
+        // A tiny buffer, so the values are written over many flushes.
+        try (var jsonFileWriter = new JsonFileWriter(outputStream, 1)) {
+            jsonFileWriter.write(report);
+            jsonFileWriter.write(report);
+        }
+
+        assertEquals(expected, outputStream.toString(UTF_8));
+    }
+
+    @Test
+    void write_shouldWriteEmptyArray_whenThereAreNoReports() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+
+        new JsonFileWriter(outputStream, 1024).close();
+
+        assertEquals("[]", outputStream.toString(UTF_8));
     }
 
     @Test
     void close_shouldCloseResource() throws IOException {
-        var writer = mock(Writer.class);
-        var jsonFileWriter = new JsonFileWriter(objectMapper, writer);
+        var outputStream = mock(OutputStream.class);
+        var jsonFileWriter = new JsonFileWriter(outputStream, 1024);
 
         jsonFileWriter.close();
 
-        verify(writer).flush();
-        verify(writer).close();
+        verify(outputStream).flush();
+        verify(outputStream).close();
     }
 }
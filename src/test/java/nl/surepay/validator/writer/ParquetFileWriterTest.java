@@ -0,0 +1,96 @@
+package nl.surepay.validator.writer;
+
+import nl.surepay.validator.model.Report;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ParquetFileWriterTest {
+    @Test
+    void write_shouldWriteReport(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("report.parquet");
+
+        try (var parquetFileWriter = new ParquetFileWriter(Files.newOutputStream(file))) {
+            parquetFileWriter.write(new Report(null, null, "Null reference and description"));
+            parquetFileWriter.write(new Report(1L, "Book \"John\" € 😀", "With reference and description"));
+        }
+
+        try (var fileReader = ParquetFileReader.open(new LocalInputFile(file))) {
+            assertEquals(ParquetFileWriter.SCHEMA, fileReader.getFileMetaData().getSchema());
+        }
+
+        var groups = read(file);
+
+        assertEquals(2, groups.size());
+        assertEquals(0, groups.get(0).getFieldRepetitionCount("reference"));
+        assertEquals(0, groups.get(0).getFieldRepetitionCount("description"));
+        assertEquals("Null reference and description", groups.get(0).getString("errorMessage", 0));
+        assertEquals(1L, groups.get(1).getLong("reference", 0));
+        assertEquals("Book \"John\" € 😀", groups.get(1).getString("description", 0));
+        assertEquals("With reference and description", groups.get(1).getString("errorMessage", 0));
+    }
+
+    @Test
+    void write_shouldWriteEmptyFile_whenThereAreNoReports(@TempDir Path directory) throws IOException {
+        var file = directory.resolve("report.parquet");
+
+        new ParquetFileWriter(Files.newOutputStream(file)).close();
+
+        assertFalse(read(file).iterator().hasNext());
+    }
+
+    @Test
+    void close_shouldCloseResource() throws IOException {
+        var outputStream = mock(OutputStream.class);
+        var parquetFileWriter = new ParquetFileWriter(outputStream);
+
+        parquetFileWriter.close();
+
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+        verify(outputStream).close();
+    }
+
+    private static List<Group> read(Path file) throws IOException {
+        var groups = new ArrayList<Group>();
+
+        try (var reader = new GroupReaderBuilder(new LocalInputFile(file)).build()) {
+            for (var group = reader.read(); group != null; group = reader.read()) {
+                groups.add(group);
+            }
+        }
+
+        return groups;
+    }
+
+    private static class GroupReaderBuilder extends ParquetReader.Builder<Group> {
+        private GroupReaderBuilder(InputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected ReadSupport<Group> getReadSupport() {
+            return new GroupReadSupport();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package nl.surepay.validator.writer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+
+class ResponseEncodingTest {
+    @Test
+    void open_shouldCompress_whenGzipIsAccepted() throws IOException {
+        var request = new MockHttpServletRequest();
+        var response = new MockHttpServletResponse();
+
+        request.addHeader(ACCEPT_ENCODING, "br, gzip;q=0.8");
+
+        try (var outputStream = ResponseEncoding.open(request, response)) {
+            outputStream.write("Reference,Description,Error Message\n".getBytes(UTF_8));
+        }
+
+        assertEquals("gzip", response.getHeader(CONTENT_ENCODING));
+        assertEquals(ACCEPT_ENCODING, response.getHeader(VARY));
+
+        try (var inputStream = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals("Reference,Description,Error Message\n", new String(inputStream.readAllBytes(), UTF_8));
+        }
+    }
+
+    @Test
+    void open_shouldNotCompress_whenGzipIsNotAccepted() throws IOException {
+        var request = new MockHttpServletRequest();
+        var response = new MockHttpServletResponse();
+
+        request.addHeader(ACCEPT_ENCODING, "gzip;q=0, identity");
+
+        try (var outputStream = ResponseEncoding.open(request, response)) {
+            outputStream.write("Reference,Description,Error Message\n".getBytes(UTF_8));
+        }
+
+        assertNull(response.getHeader(CONTENT_ENCODING));
+        assertEquals("Reference,Description,Error Message\n", response.getContentAsString(UTF_8));
+    }
+
+    @Test
+    void acceptsGzip_shouldReadQuality() {
+        assertTrue(ResponseEncoding.acceptsGzip("gzip"));
+        assertTrue(ResponseEncoding.acceptsGzip("deflate, *"));
+        assertFalse(ResponseEncoding.acceptsGzip(null));
+        assertFalse(ResponseEncoding.acceptsGzip("deflate, br"));
+        assertFalse(ResponseEncoding.acceptsGzip("gzip;q=0.0"));
+    }
+}